@@ -1,5 +1,6 @@
 package de.hup.home.plan;
 
+import de.hup.home.logic.models.User;
 import de.hup.home.logic.models.UserManager;
 import de.hup.home.plan.enums.*;
 import de.hup.home.logic.data.SaveLessonData;
@@ -9,22 +10,41 @@ import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.DayOfWeek;
+import java.time.format.TextStyle;
 import java.util.*;
 
 import static de.hup.home.plan.PlannerConstants.*;
 
 public class StudentPlannerDashBoard {
 
+    private static final int LESSON_SAVE_DELAY_MILLIS = 500;
+
     private int buttonIndex = 1;
     private JPanel weekPlanContainer;
+    private final WeekGrid weekGrid = new WeekGrid();
     private final ArrayList<LessonBlock> lessonBlocks = new ArrayList<>();
     private final SaveLessonData saveLessonData = new SaveLessonData();
+    //built on first use, see showMenuFrame
     private final LinkedHashMap<MenuIDs, JFrame> menuFrames = new LinkedHashMap<>();
+    private final AssignmentUIManager assignmentUIManager = new AssignmentUIManager();
+    //open, completed and due per weekday of the current user's assignments
+    private final JLabel summaryLabel = new JLabel();
+    private final long constructionStart = System.nanoTime();
     private final LinkedHashMap<Integer, Lesson> lessonsMap = saveLessonData.loadLessonsForUser(UserManager.getInstance().getCurrentUser());
+    //slot -> lesson as it was last loaded or saved, edits are compared against it
+    private final HashMap<Integer, Lesson> savedLessons = new HashMap<>(lessonsMap);
+    //edits within the delay are saved together
+    private final javax.swing.Timer lessonSaveTimer = new javax.swing.Timer(LESSON_SAVE_DELAY_MILLIS, _ -> flushLessons());
 
     public StudentPlannerDashBoard() {
-        createMenuFrames();
         initializeMainDashboard();
+        loadAssignmentSummary();
+        if (Boolean.getBoolean("planner.prewarmMenus")) {
+            prewarmMenuFrames();
+        }
     }
 
     // Main Dashboard initialization
@@ -49,12 +69,31 @@ public class StudentPlannerDashBoard {
         mainFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         mainFrame.setSize(FRAME_WIDTH, FRAME_HEIGHT);
         mainFrame.setResizable(true);
+        mainFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                flushLessons(); //before the exit
+            }
+        });
         return mainFrame;
     }
 
     private JPanel createWeekPlanContainer() {
-        JPanel panel = new JPanel(new GridLayout(1, WEEKDAYS_AMOUNT, 5, 0));
+        JPanel panel = new JPanel(new BorderLayout()) {
+            private boolean painted;
+
+            //time from the constructor to the first frame the user sees
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (!painted) {
+                    painted = true;
+                    AssignmentMetrics.histogram("dashboard.firstPaint").record(System.nanoTime() - constructionStart);
+                }
+            }
+        };
         panel.setBackground(new Color(0, 0, 0, 0)); // Transparent
+        panel.add(weekGrid, BorderLayout.CENTER);
         return panel;
     }
 
@@ -72,6 +111,8 @@ public class StudentPlannerDashBoard {
             buttonPanel.add(createMenuButton(id));
             buttonPanel.add(Box.createHorizontalGlue());
         }
+        buttonPanel.add(summaryLabel);
+        buttonPanel.add(Box.createHorizontalGlue());
     }
 
     private JButton createMenuButton(MenuIDs id) {
@@ -83,27 +124,78 @@ public class StudentPlannerDashBoard {
     }
 
     private void showMenuFrame(@NotNull final MenuIDs id) {
-        Optional<JFrame> frame = Optional.ofNullable(menuFrames.get(id));
-        frame.ifPresent(f -> {
-            f.setVisible(true);
-            f.toFront();
-        });
+        JFrame frame = menuFrames.computeIfAbsent(id, this::createMenuFrame);
+        frame.setVisible(true);
+        frame.toFront();
     }
 
-    // Menu Frames
-    private void createMenuFrames() {
-        AssignmentUIManager mainFrame = new AssignmentUIManager();
+    // Menu Frames, built the first time they are shown (or prewarmed)
+    private JFrame createMenuFrame(@NotNull final MenuIDs id) {
+        long start = System.nanoTime();
+        JFrame frame = switch (id) {
+            case HOMEWORK -> assignmentUIManager.createHomeworkFrame();
+            default -> new JFrame(id.getDisplayName());
+        };
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(false);
+        AssignmentMetrics.histogram("dashboard.menuFrame." + id.name()).record(System.nanoTime() - start);
+        return frame;
+    }
 
-        for (MenuIDs id : MenuIDs.values()) {
-            JFrame frame = switch (id) {
-                case HOMEWORK -> mainFrame.createHomeworkFrame();
-                default -> new JFrame(id.getDisplayName());
-            };
-            frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            frame.setLocationRelativeTo(null);
-            frame.setVisible(false);
-            menuFrames.put(id, frame);
+    /*
+    Speculative: once the dashboard is up, the user's assignments are loaded on a background thread
+    so the homework frame finds them cached, then the frames are built on the EDT one per event,
+    so input in between is never blocked for long.
+     */
+    private void prewarmMenuFrames() {
+        Thread prewarm = new Thread(() -> {
+            Optional.ofNullable(UserManager.getInstance().getCurrentUser())
+                    .ifPresent(user -> new AssignmentManager().loadFromCSVForUser(user));
+            for (MenuIDs id : MenuIDs.values()) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!menuFrames.containsKey(id)) {
+                        menuFrames.put(id, createMenuFrame(id));
+                    }
+                });
+            }
+        }, "menu-prewarm");
+        prewarm.setDaemon(true);
+        prewarm.setPriority(Thread.MIN_PRIORITY);
+        prewarm.start();
+    }
+
+    /*
+    The user is loaded off the EDT, the label then follows every change of the user's assignments,
+    also those made in the homework frame. The counts come from the aggregates the manager keeps
+    up to date, refreshing does not look at the assignments.
+     */
+    private void loadAssignmentSummary() {
+        Optional<User> user = Optional.ofNullable(UserManager.getInstance().getCurrentUser());
+        if (user.isEmpty()) {
+            return;
         }
+        Thread loader = new Thread(() -> {
+            AssignmentManager manager = new AssignmentManager();
+            manager.loadFromCSVForUser(user.get());
+            SwingUtilities.invokeLater(() -> {
+                manager.addChangeListener(_ -> showAssignmentSummary(manager));
+                showAssignmentSummary(manager);
+            });
+        }, "summary-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    //due counts line up with the week plan's columns
+    private void showAssignmentSummary(@NotNull final AssignmentManager manager) {
+        AssignmentSummary summary = manager.getSummary();
+        StringBuilder text = new StringBuilder("Open: " + summary.open() + "  Completed: " + summary.completed() + "  Due:");
+        for (int day = 0; day < WEEKDAYS_AMOUNT; day++) {
+            text.append(' ').append(DayOfWeek.of(day + 1).getDisplayName(TextStyle.SHORT, Locale.getDefault()))
+                    .append(' ').append(summary.openDueByWeekday().get(day));
+        }
+        summaryLabel.setText(text.toString());
     }
 
     // Week Plan
@@ -124,66 +216,55 @@ public class StudentPlannerDashBoard {
         }
     }
 
+    //the blocks are not shown themselves, the week grid paints them and forwards clicks
     private void createDayColumn(final int lessonAmount, final int breakAmount) {
-        JPanel dayPanel = new JPanel(new BlockLayoutManager());
-        dayPanel.setOpaque(false);
-        weekPlanContainer.add(dayPanel);
+        weekGrid.addDay();
+        int breakWeight = new BreakBlock().getWeight();
 
         for (int i = 0; i < lessonAmount; i++) {
             Lesson lesson = lessonsMap.getOrDefault(buttonIndex, Lesson.NONE);
             LessonBlock block = new LessonBlock(new LessonEditor(this), buttonIndex, lesson);
             block.setLesson(lesson);
             lessonBlocks.add(block);
-            dayPanel.add(block);
+            weekGrid.addLesson(block);
             buttonIndex++;
             if (i < breakAmount) {
-                dayPanel.add(new BreakBlock());
+                weekGrid.addBreak(breakWeight);
             }
         }
     }
 
+    /**
+     * Called after every lesson edit. The save is batched: it happens once no edit followed for
+     * {@value #LESSON_SAVE_DELAY_MILLIS} ms, or when the dashboard is closed.
+     */
     public void saveAllLessons() {
+        weekGrid.lessonsChanged();
+        lessonSaveTimer.setRepeats(false);
+        lessonSaveTimer.restart();
+    }
+
+    //saves only if a slot differs from what was saved last
+    private void flushLessons() {
+        lessonSaveTimer.stop();
+        ArrayList<LessonBlock> changed = new ArrayList<>();
+        for (LessonBlock block : lessonBlocks) {
+            if (block.getLesson() != savedLessons.getOrDefault(block.getIndex(), Lesson.NONE)) {
+                changed.add(block);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        //SaveLessonData only takes the whole plan
         LinkedHashMap<Integer, Lesson> toSave = new LinkedHashMap<>();
         for (LessonBlock block : lessonBlocks) {
             toSave.put(block.getIndex(), block.getLesson());
         }
         saveLessonData.saveLessonsForUser(UserManager.getInstance().getCurrentUser(), toSave);
-    }
-}
-class BlockLayoutManager implements LayoutManager {
-
-    @Override
-    public void addLayoutComponent(String name, Component comp) {}
-    @Override
-    public void removeLayoutComponent(Component comp) {}
-    @Override
-    public Dimension preferredLayoutSize(Container parent) { return parent.getSize(); }
-    @Override
-    public Dimension minimumLayoutSize(Container parent) { return parent.getSize(); }
-
-    @Override
-    public void layoutContainer(Container parent) {
-        int totalWeight = 0;
-        for (Component comp : parent.getComponents()) {
-            if (comp instanceof LessonBlock lb) {
-                totalWeight += lb.getWeight();
-            } else if (comp instanceof BreakBlock bb) {
-                totalWeight += bb.getWeight();
-            }
-        }
-
-        int y = 0;
-        int parentWidth = parent.getWidth();
-        int parentHeight = parent.getHeight();
-
-        for (Component comp : parent.getComponents()) {
-            int compWeight = 1;
-            if (comp instanceof LessonBlock lb) compWeight = lb.getWeight();
-            else if (comp instanceof BreakBlock bb) compWeight = bb.getWeight();
-
-            int compHeight = (int) ((compWeight / (double) totalWeight) * parentHeight);
-            comp.setBounds(0, y, parentWidth, compHeight);
-            y += compHeight;
+        for (LessonBlock block : changed) {
+            savedLessons.put(block.getIndex(), block.getLesson());
         }
     }
 }
@@ -0,0 +1,88 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Counters over the assignments of one user: open and completed, per lesson and open ones per due
+ * day. Every change adjusts them by the old and the new state of one assignment, so they never
+ * have to be recounted, and a {@link AssignmentSummary} is read from them without looking at any
+ * assignment.
+ */
+final class AssignmentAggregates implements AssignmentIndex {
+
+    private static final Lesson[] LESSONS = Lesson.values();
+    private static final int DAYS_PER_WEEK = 7;
+
+    private int open;
+    private int completed;
+    //by lesson ordinal
+    private final int[] perLesson = new int[LESSONS.length];
+    private final int[] completedPerLesson = new int[LESSONS.length];
+    //epoch day -> open assignments due that day, days without any are removed
+    private final Map<Integer, int[]> openDueByDay = new HashMap<>();
+
+    @Override
+    public void added(long id, @NotNull Assignment data) {
+        count(data, 1);
+    }
+
+    //a completion toggle moves the assignment from open to completed and out of its due day
+    @Override
+    public void updated(long id, @NotNull Assignment oldData, @NotNull Assignment newData) {
+        count(oldData, -1);
+        count(newData, 1);
+    }
+
+    @Override
+    public void removed(long id, @NotNull Assignment data) {
+        count(data, -1);
+    }
+
+    @Override
+    public void cleared() {
+        open = 0;
+        completed = 0;
+        Arrays.fill(perLesson, 0);
+        Arrays.fill(completedPerLesson, 0);
+        openDueByDay.clear();
+    }
+
+    //monday is the epoch day of the first day of the week to count the due assignments of
+    AssignmentSummary summary(final int monday) {
+        Map<Lesson, AssignmentAnalytics.LessonCompletion> lessons = new EnumMap<>(Lesson.class);
+        for (Lesson lesson : LESSONS) {
+            if (perLesson[lesson.ordinal()] > 0) {
+                lessons.put(lesson, new AssignmentAnalytics.LessonCompletion(perLesson[lesson.ordinal()],
+                        completedPerLesson[lesson.ordinal()]));
+            }
+        }
+        List<Integer> dueByWeekday = new ArrayList<>(DAYS_PER_WEEK);
+        for (int day = monday; day < monday + DAYS_PER_WEEK; day++) {
+            int[] due = openDueByDay.get(day);
+            dueByWeekday.add(due == null ? 0 : due[0]);
+        }
+        return new AssignmentSummary(open, completed, lessons, dueByWeekday);
+    }
+
+    private void count(Assignment data, int delta) {
+        int lesson = data.lesson().ordinal();
+        perLesson[lesson] += delta;
+        if (data.completed()) {
+            completed += delta;
+            completedPerLesson[lesson] += delta;
+            return;
+        }
+
+        open += delta;
+        int day = EpochDays.of(data.dueDate());
+        int[] due = openDueByDay.computeIfAbsent(day, _ -> new int[1]);
+        due[0] += delta;
+        if (due[0] == 0) {
+            openDueByDay.remove(day);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.hup.home.assignment;
+
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Statistics across all users of one assignments file: completion per lesson, workload per week of
+ * the due date and open overdue assignments per user. The snapshot is read in parallel chunks
+ * (see {@link SnapshotStore#aggregate}), each chunk fills a {@link Tally} of its own and the tallies
+ * are merged, so no row is collected and no lock is shared while counting.
+ */
+public final class AssignmentAnalytics {
+
+    private static final Lesson[] LESSONS = Lesson.values();
+
+    private AssignmentAnalytics() {}
+
+    public record LessonCompletion(long total, long completed) {
+
+        public double rate() {
+            return total == 0 ? 0 : (double) completed / total;
+        }
+    }
+
+    /**
+     * {@code workloadByWeek} is keyed by the monday of the week the assignments are due in.
+     */
+    public record Report(long assignments, @NotNull Map<Lesson, LessonCompletion> completionByLesson,
+                         @NotNull SortedMap<LocalDate, Long> workloadByWeek, @NotNull Map<String, Long> overdueByUser) {}
+
+    static Report analyze(@NotNull final AssignmentPersistence persistence, @NotNull final LocalDate today) throws IOException {
+        long start = System.nanoTime();
+        int todayEpochDay = EpochDays.of(today);
+        Report report = persistence.aggregate(() -> new Tally(todayEpochDay)).report();
+        AssignmentMetrics.histogram("analytics").record(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Counts of the rows one chunk contained. Counters are mutable arrays, so counting a row only
+     * boxes the map keys.
+     */
+    static final class Tally implements SnapshotStore.RowAccumulator<Tally> {
+        private final int today;
+        private long rows;
+        //by lesson ordinal
+        private final long[] total = new long[LESSONS.length];
+        private final long[] completed = new long[LESSONS.length];
+        //epoch day of the monday -> due that week
+        private final Map<Integer, long[]> weeks = new HashMap<>();
+        private final Map<String, long[]> overdue = new HashMap<>();
+
+        Tally(final int today) {
+            this.today = today;
+        }
+
+        @Override
+        public void accept(@NotNull String username, long id, @NotNull Lesson lesson, int epochDay, boolean completed,
+                           @NotNull String notes) {
+            rows++;
+            total[lesson.ordinal()]++;
+            if (completed) {
+                this.completed[lesson.ordinal()]++;
+            } else if (epochDay < today) {
+                overdue.computeIfAbsent(username, _ -> new long[1])[0]++;
+            }
+            //1970-01-01 was a thursday
+            int monday = epochDay - Math.floorMod(epochDay + 3, 7);
+            weeks.computeIfAbsent(monday, _ -> new long[1])[0]++;
+        }
+
+        @Override
+        public @NotNull Tally merge(@NotNull Tally other) {
+            rows += other.rows;
+            for (int i = 0; i < total.length; i++) {
+                total[i] += other.total[i];
+                completed[i] += other.completed[i];
+            }
+            other.weeks.forEach((monday, count) -> weeks.computeIfAbsent(monday, _ -> new long[1])[0] += count[0]);
+            other.overdue.forEach((username, count) -> overdue.computeIfAbsent(username, _ -> new long[1])[0] += count[0]);
+            return this;
+        }
+
+        Report report() {
+            Map<Lesson, LessonCompletion> completion = new EnumMap<>(Lesson.class);
+            for (Lesson lesson : LESSONS) {
+                if (total[lesson.ordinal()] > 0) {
+                    completion.put(lesson, new LessonCompletion(total[lesson.ordinal()], completed[lesson.ordinal()]));
+                }
+            }
+            SortedMap<LocalDate, Long> workload = new TreeMap<>();
+            weeks.forEach((monday, count) -> workload.put(EpochDays.toLocalDate(monday), count[0]));
+            Map<String, Long> overdueByUser = new TreeMap<>();
+            overdue.forEach((username, count) -> overdueByUser.put(username, count[0]));
+            return new Report(rows, Collections.unmodifiableMap(completion), Collections.unmodifiableSortedMap(workload),
+                    Collections.unmodifiableMap(overdueByUser));
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.logic.models.User;
+import de.hup.home.plan.enums.Lesson;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Benchmarks for the persistence and mutation paths of {@link AssignmentManager} and for filling and
+ * painting the {@link AssignmentTable}. Runs without a benchmark framework, in the style of JMH:
+ * warmup iterations, then timed iterations of a fixed length, reported per dataset as throughput,
+ * average latency, allocation per operation and rate (allocations of the calling thread) and
+ * GC count and time.
+ * <pre>
+ * java -Djava.awt.headless=true de.hup.home.assignment.AssignmentBenchmark
+ *      [rows=1000,10000,100000,1000000] [users=1,100,10000] [benchmarks=load,load-cached,save,add,update,rows,table,remove,analytics]
+ *      [warmups=3] [iterations=5] [millis=1000] [components=500] [backend=csv|binary]
+ *      [memory=objects|columnar]
+ * </pre>
+ * Datasets are generated into a temporary directory and deleted afterwards. Writes run on the
+ * write-behind thread, so save waits for the flush to be measured end to end.
+ */
+final class AssignmentBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final Lesson[] LESSONS = Arrays.stream(Lesson.values())
+            .filter(lesson -> AssignmentManager.isValid(lesson, "benchmark"))
+            .toArray(Lesson[]::new);
+
+    private final int warmups;
+    private final int iterations;
+    private final long iterationNanos;
+    private final int components;
+
+    private AssignmentBenchmark(int warmups, int iterations, long iterationMillis, int components) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.components = components;
+    }
+
+    /**
+     * One benchmark operation, setup runs untimed before every iteration.
+     */
+    private interface Benchmark {
+        default void setup() {}
+
+        void run(int operation);
+    }
+
+    private record Result(String name, long operations, long nanos, long allocatedBytes, long gcCount, long gcMillis) {
+        double operationsPerSecond() {
+            return operations * 1e9 / nanos;
+        }
+
+        double microsPerOperation() {
+            return nanos / 1e3 / operations;
+        }
+
+        double bytesPerOperation() {
+            return (double) allocatedBytes / operations;
+        }
+
+        double megabytesPerSecond() {
+            return allocatedBytes / 1e6 / (nanos / 1e9);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                System.err.println("Ignoring argument without '=': " + arg);
+                continue;
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        int[] rows = ints(options.getOrDefault("rows", "1000,10000,100000,1000000"));
+        int[] users = ints(options.getOrDefault("users", "1,100,10000"));
+        List<String> benchmarks = List.of(options.getOrDefault("benchmarks", "load,load-cached,save,add,update,rows,table,remove,analytics").split(","));
+        if (options.containsKey("backend")) {
+            System.setProperty(SnapshotStore.BACKEND_PROPERTY, options.get("backend"));
+        }
+        if (options.containsKey("memory")) {
+            System.setProperty(UserAssignments.MEMORY_PROPERTY, options.get("memory"));
+        }
+
+        AssignmentBenchmark harness = new AssignmentBenchmark(
+                Integer.parseInt(options.getOrDefault("warmups", "3")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("millis", "1000")),
+                Integer.parseInt(options.getOrDefault("components", "500")));
+
+        System.out.printf("%-11s %9s %6s %14s %12s %12s %10s %6s %8s%n",
+                "bench", "rows", "users", "ops/s", "us/op", "B/op", "MB/s", "gc", "gc ms");
+        for (int rowCount : rows) {
+            for (int userCount : users) {
+                if (userCount > rowCount) {
+                    continue;
+                }
+                Path directory = Files.createTempDirectory("assignment-benchmark");
+                try {
+                    harness.runDataset(directory, rowCount, userCount, benchmarks);
+                } finally {
+                    deleteRecursively(directory);
+                }
+            }
+        }
+    }
+
+    private void runDataset(Path directory, int rowCount, int userCount, List<String> benchmarks) throws IOException {
+        Path csvPath = directory.resolve("assignments.csv");
+        generate(csvPath, rowCount, userCount);
+        AssignmentManager manager = new AssignmentManager(csvPath);
+        Random random = new Random(42);
+        User user = new User(username(0));
+        manager.loadFromCSVForUser(user);
+
+        for (String benchmark : benchmarks) {
+            Benchmark body = switch (benchmark) {
+                //every load reads the file, load-cached measures the cache hits instead
+                case "load" -> operation -> reload(manager, new User(username(random.nextInt(userCount))));
+                case "load-cached" -> operation -> manager.loadFromCSVForUser(new User(username(random.nextInt(userCount))));
+                case "save" -> new Benchmark() {
+                    @Override
+                    public void setup() {
+                        reload(manager, user);
+                    }
+
+                    @Override
+                    public void run(int operation) {
+                        long id = randomId(manager, random);
+                        if (id >= 0) {
+                            manager.updateAssignment(id, assignment(random, operation));
+                        } else {
+                            manager.addAssignment(assignment(random, operation));
+                        }
+                        manager.saveToCSVForUser(user);
+                        manager.flush().join();
+                    }
+                };
+                case "add" -> new Benchmark() {
+                    @Override
+                    public void setup() {
+                        reload(manager, user);
+                    }
+
+                    @Override
+                    public void run(int operation) {
+                        manager.addAssignment(assignment(random, operation));
+                    }
+                };
+                case "update" -> new Benchmark() {
+                    @Override
+                    public void setup() {
+                        reload(manager, user);
+                        if (manager.getAssignmentsById().isEmpty()) {
+                            manager.addAssignment(assignment(random, 0));
+                        }
+                    }
+
+                    @Override
+                    public void run(int operation) {
+                        manager.updateAssignment(randomId(manager, random), assignment(random, operation));
+                    }
+                };
+                case "remove" -> new Benchmark() {
+                    private long[] ids;
+
+                    //later iterations get fresh rows so there is always something to remove
+                    @Override
+                    public void setup() {
+                        reload(manager, user);
+                        if (ids != null) {
+                            for (int i = 0; i < 10_000; i++) {
+                                manager.addAssignment(assignment(random, i));
+                            }
+                        }
+                        ids = manager.getAssignmentsById().keySet().stream().mapToLong(Long::longValue).toArray();
+                    }
+
+                    @Override
+                    public void run(int operation) {
+                        if (operation < ids.length) {
+                            manager.removeAssignment(ids[operation]);
+                        } else {
+                            manager.removeAssignment(manager.addAssignment(assignment(random, operation)).orElseThrow());
+                        }
+                    }
+                };
+                //paints the first rows of a table the way a scroll to the top would, components is the row count
+                case "rows" -> new Benchmark() {
+                    private AssignmentTableModel model;
+                    private AssignmentTable table;
+
+                    @Override
+                    public void setup() {
+                        if (model != null) {
+                            model.dispose();
+                        }
+                        model = new AssignmentTableModel(manager);
+                        model.reload();
+                        table = new AssignmentTable(model, manager);
+                    }
+
+                    @Override
+                    public void run(int operation) {
+                        int rows = Math.min(components, table.getRowCount());
+                        for (int row = 0; row < rows; row++) {
+                            for (int column = 0; column < table.getColumnCount(); column++) {
+                                table.prepareRenderer(table.getCellRenderer(row, column), row, column);
+                            }
+                        }
+                    }
+                };
+                case "table" -> operation -> {
+                    AssignmentTableModel model = new AssignmentTableModel(manager);
+                    model.reload();
+                    model.dispose();
+                };
+                //B/op only counts the calling thread, the chunks are read on the fork/join pool
+                case "analytics" -> operation -> manager.computeStatistics();
+                default -> null;
+            };
+            if (body == null) {
+                System.err.println("Unknown benchmark: " + benchmark);
+                continue;
+            }
+
+            Result result = measure(benchmark, body);
+            manager.flush().join();
+            System.out.printf("%-11s %9d %6d %14.1f %12.2f %12.0f %10.1f %6d %8d%n",
+                    result.name(), rowCount, userCount, result.operationsPerSecond(), result.microsPerOperation(),
+                    result.bytesPerOperation(), result.megabytesPerSecond(), result.gcCount(), result.gcMillis());
+        }
+        //the load numbers depend on how many users the cache held
+        AssignmentCacheStatistics cache = manager.getCacheStatistics();
+        System.out.printf("# cache %d rows %d users: hit rate %.2f, %d evictions, %d write-backs%n",
+                rowCount, userCount, cache.hitRate(), cache.evictions(), cache.writeBacks());
+    }
+
+    //warmup iterations are run and thrown away, the timed iterations are summed up
+    private Result measure(String name, Benchmark benchmark) {
+        for (int i = 0; i < warmups; i++) {
+            iteration(name, benchmark);
+        }
+        Result total = new Result(name, 0, 0, 0, 0, 0);
+        for (int i = 0; i < iterations; i++) {
+            Result result = iteration(name, benchmark);
+            total = new Result(name, total.operations() + result.operations(), total.nanos() + result.nanos(),
+                    total.allocatedBytes() + result.allocatedBytes(), total.gcCount() + result.gcCount(),
+                    total.gcMillis() + result.gcMillis());
+        }
+        return total;
+    }
+
+    private Result iteration(String name, Benchmark benchmark) {
+        benchmark.setup();
+
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long end;
+        int operations = 0;
+        do {
+            benchmark.run(operations++);
+            end = System.nanoTime();
+        } while (end - start < iterationNanos);
+
+        return new Result(name, operations, end - start, THREADS.getCurrentThreadAllocatedBytes() - allocated,
+                gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    //rows are spread round robin, so every user has rowCount / userCount assignments
+    private static void generate(Path csvPath, int rowCount, int userCount) throws IOException {
+        Random random = new Random(rowCount * 31L + userCount);
+        long[] nextIds = new long[userCount];
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath, StandardCharsets.UTF_8)) {
+            writer.write(AssignmentPersistence.HEADER);
+            writer.write('\n');
+            for (int row = 0; row < rowCount; row++) {
+                int user = row % userCount;
+                writer.write(username(user) + "," + ++nextIds[user] + "," + assignment(random, row).toCSVLine());
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static Assignment assignment(Random random, int number) {
+        return new Assignment(LESSONS[random.nextInt(LESSONS.length)],
+                EpochDays.toDate(EpochDays.today() + random.nextInt(120) - 30),
+                random.nextInt(4) == 0, "Exercise " + number + ", page " + random.nextInt(300));
+    }
+
+    //setups that reset the user read it back from the file, not from the cache that holds their changes
+    private static void reload(AssignmentManager manager, User user) {
+        manager.clearCache();
+        manager.loadFromCSVForUser(user);
+    }
+
+    private static String username(int user) {
+        return "user" + user;
+    }
+
+    private static long randomId(AssignmentManager manager, Random random) {
+        Map<Long, Assignment> assignments = manager.getAssignmentsById();
+        if (assignments.isEmpty()) {
+            return -1;
+        }
+        //ids of a loaded dataset are dense, fall back to the first id for gaps
+        long id = 1 + random.nextInt(assignments.size());
+        return assignments.containsKey(id) ? id : assignments.keySet().iterator().next();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private static int[] ints(String list) {
+        return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package de.hup.home.assignment;
+
+/**
+ * The cache of loaded users of one assignments file, counted since the file was opened.
+ * {@code writeBacks} are evictions whose queued changes had to be written right away,
+ * {@code estimatedBytes} is the estimated heap of the users cached now.
+ */
+public record AssignmentCacheStatistics(long hits, long misses, long evictions, long writeBacks, int users,
+                                        long estimatedBytes) {
+
+    public double hitRate() {
+        long loads = hits + misses;
+        return loads == 0 ? 0 : (double) hits / loads;
+    }
+}
@@ -0,0 +1,12 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Notified on the Swing EDT with the changes of a user's assignments. Changes made before the EDT
+ * gets to deliver them arrive as one call.
+ */
+public interface AssignmentChangeListener {
+
+    void assignmentsChanged(@NotNull AssignmentChanges changes);
+}
@@ -0,0 +1,27 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The changes of one batch, coalesced per id: an assignment added and then removed within the
+ * batch does not show up at all, one added and then updated only as added.
+ * {@code reloaded} means every assignment may have changed and views should rebuild.
+ */
+public record AssignmentChanges(@NotNull Set<Long> added, @NotNull Set<Long> updated, @NotNull Set<Long> removed,
+                                boolean reloaded) {
+
+    public AssignmentChanges {
+        //in the order the changes were made
+        added = Collections.unmodifiableSet(new LinkedHashSet<>(added));
+        updated = Collections.unmodifiableSet(new LinkedHashSet<>(updated));
+        removed = Collections.unmodifiableSet(new LinkedHashSet<>(removed));
+    }
+
+    public int size() {
+        return added.size() + updated.size() + removed.size();
+    }
+}
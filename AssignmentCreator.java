@@ -7,7 +7,13 @@ import de.hup.home.plan.PlannerConstants;
 import de.hup.home.plan.enums.Lesson;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.time.LocalDate;
 import java.time.format.*;
 import java.util.*;
@@ -17,15 +23,25 @@ import static de.hup.home.plan.PlannerConstants.*;
 public class AssignmentCreator {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(PlannerConstants.pattern);
+    private static final int SORT_BUTTON_WIDTH = 100;
+    private static final int SORT_BUTTON_HEIGHT = 25;
+    private static final int SEARCH_FIELD_GAP = 10;
 
     private final JTextField dueDateField = new JTextField(PlannerConstants.pattern);
     private final JComboBox<Lesson> lessonOptions = new JComboBox<>();
     private final JCheckBox completedBox = new JCheckBox("Completed");
     private final JTextField notesField = new JTextField();
+    private final JTextField searchField = new JTextField();
+    private final JButton submitButton = new JButton("Submit");
     private final AssignmentManager manager = new AssignmentManager();
 
-    private JPanel listPanel;
+    private final AssignmentTableModel tableModel = new AssignmentTableModel(manager);
+    private final AssignmentReminderSink reminderSink = AssignmentReminderSink.onEventDispatchThread(this::showReminders);
+
     private JFrame parentFrame;
+    private AssignmentLoadWorker loadWorker;
+    //the current user's assignments were loaded completely, a cancelled load is started again when the frame shows
+    private boolean loaded;
 
     public JFrame createHomeworkFrame() {
         parentFrame = new JFrame("Assignments");
@@ -33,32 +49,105 @@ public class AssignmentCreator {
         parentFrame.setSize(FRAME_WIDTH, FRAME_HEIGHT);
         parentFrame.setResizable(false);
         parentFrame.setLayout(new AssignmentLayoutManager());
+        //the frame is disposed on close and shown again later, reminders are shown while it is open
+        parentFrame.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                manager.getReminders().addSink(reminderSink);
+                if (!loaded && loadWorker == null) {
+                    loadAssignmentsForCurrentUser();
+                }
+            }
+        });
+        parentFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancelLoading();
+                manager.getReminders().removeSink(reminderSink);
+                manager.flush();
+            }
+        });
 
-        listPanel = createAssignmentsListPanel();
-        parentFrame.add(createAssignmentsScrollPane(listPanel)); //above_x make a sort button
+        parentFrame.add(createAssignmentsScrollPane(new AssignmentTable(tableModel, manager))); //above_x make a sort button
         parentFrame.add(createAssignmentInputPanel());
         parentFrame.add(createSortButton());
+        parentFrame.add(createSearchField());
         loadAssignmentsForCurrentUser();
         return parentFrame;
     }
 
-    //saves the content of the JScroller
-    private JPanel createAssignmentsListPanel() {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-        return panel;
-    }
 
 
+    //picking the current criteria again flips the direction
+    private void sortAssignments(AssignmentSortCriteria criteria) {
+        boolean descending = criteria == tableModel.getSortCriteria() && !tableModel.isDescending();
+        tableModel.sortBy(criteria, descending);
+    }
 
-    private void sortPanelComponents(String criteria, JPanel panel) {
+    private JButton createSortButton() {
+        JButton button = new JButton("Sort");
+        button.setBounds(CREATE_NEW_ASSIGNMENT_X, CREATE_NEW_ASSIGNMENT_Y + CREATE_NEW_ASSIGNMENT_HEIGHT + 10,
+                SORT_BUTTON_WIDTH, SORT_BUTTON_HEIGHT);
 
+        JPopupMenu menu = new JPopupMenu();
+        for (AssignmentSortCriteria criteria : AssignmentSortCriteria.values()) {
+            JMenuItem item = new JMenuItem(criteria.getDisplayName());
+            item.addActionListener(_ -> AssignmentMetrics.timeUiAction("sort", () -> sortAssignments(criteria)));
+            menu.add(item);
+        }
+        button.addActionListener(_ -> menu.show(button, 0, button.getHeight()));
+        return button;
+    }
 
+    //searches the notes on every keystroke, the index answers without scanning all assignments
+    private JTextField createSearchField() {
+        searchField.setBounds(CREATE_NEW_ASSIGNMENT_X + SORT_BUTTON_WIDTH + SEARCH_FIELD_GAP,
+                CREATE_NEW_ASSIGNMENT_Y + CREATE_NEW_ASSIGNMENT_HEIGHT + 10,
+                CREATE_NEW_ASSIGNMENT_WITH - SORT_BUTTON_WIDTH - SEARCH_FIELD_GAP, SORT_BUTTON_HEIGHT);
+        searchField.setToolTipText("Search notes");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                search();
+            }
+        });
+        return searchField;
+    }
 
+    //one message for everything that became due at once, only for the user who is logged in and loaded here
+    private void showReminders(java.util.List<AssignmentReminder> reminders) {
+        Optional<String> username = getCurrentUser().map(User::getUsername);
+        StringBuilder message = new StringBuilder();
+        for (AssignmentReminder reminder : reminders) {
+            if (!loaded || username.isEmpty() || !username.get().equals(reminder.username())) {
+                continue;
+            }
+            manager.getAssignment(reminder.id()).ifPresent(data -> message
+                    .append(reminder.kind() == AssignmentReminder.Kind.OVERDUE ? "Overdue: " : "Due soon: ")
+                    .append(data.lesson().getDisplayName())
+                    .append(" - ").append(data.notes()).append('\n'));
+        }
+        if (!message.isEmpty()) {
+            JOptionPane.showMessageDialog(parentFrame, message.toString(), "Reminders", JOptionPane.INFORMATION_MESSAGE);
+        }
     }
 
-    private JScrollPane createAssignmentsScrollPane(JPanel listPanel) {
-        JScrollPane scrollPane = new JScrollPane(listPanel);
+    private void search() {
+        AssignmentMetrics.timeUiAction("search", () -> tableModel.search(searchField.getText()));
+    }
+
+    private JScrollPane createAssignmentsScrollPane(AssignmentTable table) {
+        JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBounds(VIEW_ALL_ASSIGNMENTS_X, VIEW_ALL_ASSIGNMENTS_Y,
                 VIEW_ALL_ASSIGNMENTS_WIDTH, VIEW_ALL_ASSIGNMENTS_HEIGHT);
         scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
@@ -113,11 +202,10 @@ public class AssignmentCreator {
     }
 
     private JButton createSubmitButton() {
-        JButton button = new JButton("Submit");
-        button.setBounds(SUBMIT_BUTTON_X, SUBMIT_BUTTON_Y,
+        submitButton.setBounds(SUBMIT_BUTTON_X, SUBMIT_BUTTON_Y,
                 SUBMIT_BUTTON_WIDTH, SUBMIT_BUTTON_HEIGHT);
-        button.addActionListener(_ -> handleSubmit());
-        return button;
+        submitButton.addActionListener(_ -> AssignmentMetrics.timeUiAction("submit", this::handleSubmit));
+        return submitButton;
     }
 
     private void handleSubmit() {
@@ -138,41 +226,62 @@ public class AssignmentCreator {
         Assignment data = new Assignment(selectedLesson.get(), dueDate,
                 completedBox.isSelected(), notesField.getText());
 
-        if (!manager.addAssignment(data)) {
+        //the table follows the change event, saving happens in the background
+        if (manager.addAssignment(data).isEmpty()) {
             JOptionPane.showMessageDialog(parentFrame,
                     "Invalid Input: Lesson.");
-            return;
         }
-
-        getCurrentUser().ifPresent(user -> {
-            manager.saveToCSVForUser(user);
-            listPanel.add(new AssignmentRow(data, manager));
-        });
-
-        listPanel.revalidate();
-        listPanel.repaint();
     }
 
     private JButton createSaveButton() {
         JButton button = new JButton("Save");
         button.setBounds(SUBMIT_BUTTON_X + 100, SUBMIT_BUTTON_Y, 80, 25);
-        button.addActionListener(_ -> getCurrentUser().ifPresent(user -> {
+        button.addActionListener(_ -> AssignmentMetrics.timeUiAction("save", () -> getCurrentUser().ifPresent(user -> {
             manager.saveToCSVForUser(user);
-            JOptionPane.showMessageDialog(parentFrame, "Saved successfully!");
-        }));
+            manager.flush().whenComplete((_, error) -> SwingUtilities.invokeLater(() -> {
+                if (error == null) {
+                    JOptionPane.showMessageDialog(parentFrame, "Saved successfully!");
+                } else {
+                    JOptionPane.showMessageDialog(parentFrame, "Saving failed: " + error.getCause().getMessage());
+                }
+            }));
+        })));
         return button;
     }
 
+    /*
+    Loads in the background, the frame is returned right away and the rows arrive in pages.
+    New assignments wait for the load, until then they would be added to no user.
+     */
     private void loadAssignmentsForCurrentUser() {
         getCurrentUser().ifPresent(user -> {
-            manager.loadFromCSVForUser(user);
-            manager.getAssignments().forEach(data ->
-                    listPanel.add(new AssignmentRow(data, manager)));
-            listPanel.revalidate();
-            listPanel.repaint();
+            cancelLoading();
+            loaded = false;
+            submitButton.setEnabled(false);
+            loadWorker = new AssignmentLoadWorker(manager, tableModel, user, () -> {
+                loaded = true;
+                loadWorker = null;
+                submitButton.setEnabled(true);
+            }, error -> {
+                //not loaded, showing the frame again tries once more
+                loadWorker = null;
+                JOptionPane.showMessageDialog(parentFrame, "Loading failed: " + error.getMessage());
+            });
+            loadWorker.execute();
         });
     }
 
+    /**
+     * Stops a load that is still running, e.g. when the user logs out. The user that is being read
+     * is still loaded, only the table stops receiving rows. The load starts over when the frame is shown again.
+     */
+    public void cancelLoading() {
+        if (loadWorker != null) {
+            loadWorker.cancel(false);
+            loadWorker = null;
+        }
+    }
+
     private Optional<User> getCurrentUser() {
         return Optional.ofNullable(UserManager.getInstance().getCurrentUser());
     }
@@ -0,0 +1,505 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.plan.PlannerConstants;
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming tokenizer for {@code username,id,lesson,date,completed,notes} rows.
+ * Works on a char buffer: usernames are compared in place, lessons are matched against the tokens
+ * {@link Assignment#toCSVLine()} writes for every constant and dates are parsed straight to epoch
+ * days, so the notes are the only String allocated per row. Rows the fast path does not understand
+ * go through {@link Assignment#fromCSVLine(String)}; rows that fail there too are counted as
+ * malformed instead of printing a stack trace.
+ */
+final class AssignmentCsvReader {
+
+    /**
+     * Receives every valid row, the username is already known to the caller.
+     */
+    interface RowConsumer {
+        void accept(long id, @NotNull Lesson lesson, int epochDay, boolean completed, @NotNull String notes);
+    }
+
+    /**
+     * Receives every valid row of every user, e.g. when a whole snapshot is converted.
+     */
+    interface UserRowConsumer {
+        void accept(@NotNull String username, long id, @NotNull Lesson lesson, int epochDay, boolean completed, @NotNull String notes);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Lesson[] LESSONS = Lesson.values();
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    //csv token per lesson ordinal, taken from toCSVLine itself so it always matches the writer
+    private static final char[][] LESSON_TOKENS = new char[LESSONS.length][];
+    private static final DatePattern DATE_PATTERN = DatePattern.compile(PlannerConstants.pattern);
+    private static final boolean FAST_PATH = probeFastPath();
+
+    private final LongAdder malformedRows = new LongAdder();
+    private final LongAdder invalidRows = new LongAdder();
+
+    long malformedRows() {
+        return malformedRows.sum();
+    }
+
+    //rows that parsed fine but fail AssignmentManager.isValid
+    long invalidRows() {
+        return invalidRows.sum();
+    }
+
+    /**
+     * Streams all rows of username from the reader, the buffer only grows for rows longer than it.
+     */
+    void read(@NotNull final Reader in, @NotNull final String username, @NotNull final RowConsumer consumer) throws IOException {
+        stream(in, new LineParser(username, consumer));
+    }
+
+    /**
+     * Streams the rows of all users, consecutive rows of the same user share one username String.
+     */
+    void readAll(@NotNull final Reader in, @NotNull final UserRowConsumer consumer) throws IOException {
+        stream(in, new LineParser(consumer));
+    }
+
+    private void stream(Reader in, LineParser parser) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        int filled = 0;
+        int lineStart = 0;
+        int scan = 0;
+        boolean eof = false;
+
+        while (true) {
+            for (; scan < filled; scan++) {
+                if (buffer[scan] == '\n') {
+                    parser.line(buffer, lineStart, scan);
+                    lineStart = scan + 1;
+                }
+            }
+            if (eof) {
+                break;
+            }
+
+            //keep the unfinished line and refill behind it
+            if (lineStart > 0) {
+                System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                filled -= lineStart;
+                scan -= lineStart;
+                lineStart = 0;
+            }
+            if (filled == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                eof = true;
+            } else {
+                filled += read;
+            }
+        }
+        parser.line(buffer, lineStart, filled);
+    }
+
+    /**
+     * Same as {@link #read(Reader, String, RowConsumer)} for rows that are already in memory.
+     */
+    void read(@NotNull final CharBuffer chars, @NotNull final String username, @NotNull final RowConsumer consumer,
+              @NotNull final ReadStatistics statistics) {
+        LineParser parser = new LineParser(username, consumer);
+        parser.statistics = statistics;
+        parse(chars, parser);
+    }
+
+    /**
+     * Same as {@link #readAll(Reader, UserRowConsumer)} for rows that are already in memory, e.g. one
+     * chunk of a file that is read in parallel. The rows must not start with the header.
+     */
+    void readAll(@NotNull final CharBuffer chars, @NotNull final UserRowConsumer consumer) {
+        LineParser parser = new LineParser(consumer);
+        parser.firstLine = false;
+        parse(chars, parser);
+    }
+
+    private void parse(CharBuffer chars, LineParser parser) {
+        char[] buffer;
+        int start;
+        int end;
+        if (chars.hasArray()) {
+            buffer = chars.array();
+            start = chars.arrayOffset() + chars.position();
+            end = chars.arrayOffset() + chars.limit();
+        } else {
+            buffer = new char[chars.remaining()];
+            chars.duplicate().get(buffer);
+            start = 0;
+            end = buffer.length;
+        }
+
+        int lineStart = start;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == '\n') {
+                parser.line(buffer, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        parser.line(buffer, lineStart, end);
+    }
+
+    /**
+     * Parses {@code lesson,date,completed,notes}, e.g. a journal payload.
+     * Returns false if the payload is malformed or invalid.
+     */
+    boolean readPayload(final long id, @NotNull final String payload, @NotNull final RowConsumer consumer) {
+        return parseFields(id, payload.toCharArray(), 0, payload.length(), consumer, null);
+    }
+
+    private boolean parseFields(long id, char[] buffer, int start, int end, RowConsumer consumer, ReadStatistics statistics) {
+        if (FAST_PATH) {
+            int parsed = parseFast(id, buffer, start, end, consumer, statistics);
+            if (parsed >= 0) {
+                return parsed == 1;
+            }
+        }
+
+        //anything unusual, e.g. a lenient date, is left to the record's own parser
+        try {
+            Assignment data = Assignment.fromCSVLine(new String(buffer, start, end - start));
+            return emit(id, data.lesson(), EpochDays.of(data.dueDate()), data.completed(), data.notes(), consumer, statistics);
+        } catch (ParseException | IllegalArgumentException | ArithmeticException _) {
+            malformed(statistics);
+            return false;
+        }
+    }
+
+    //1 if emitted, 0 if invalid, -1 if the fast path does not understand the row
+    private int parseFast(long id, char[] buffer, int start, int end, RowConsumer consumer, ReadStatistics statistics) {
+        int lessonEnd = indexOf(buffer, start, end);
+        Lesson lesson = lessonEnd < 0 ? null : matchLesson(buffer, start, lessonEnd);
+        int dateEnd = lesson == null ? -1 : indexOf(buffer, lessonEnd + 1, end);
+        int epochDay = dateEnd < 0 ? NO_DATE : DATE_PATTERN.parse(buffer, lessonEnd + 1, dateEnd);
+        int completedEnd = epochDay == NO_DATE ? -1 : indexOf(buffer, dateEnd + 1, end);
+        int completed = completedEnd < 0 ? -1 : matchBoolean(buffer, dateEnd + 1, completedEnd);
+        if (completed < 0) {
+            return -1;
+        }
+        String notes = new String(buffer, completedEnd + 1, end - completedEnd - 1);
+        return emit(id, lesson, epochDay, completed == 1, notes, consumer, statistics) ? 1 : 0;
+    }
+
+    private boolean emit(long id, Lesson lesson, int epochDay, boolean completed, String notes, RowConsumer consumer,
+                         ReadStatistics statistics) {
+        if (!AssignmentManager.isValid(lesson, notes)) {
+            invalidRows.increment();
+            if (statistics != null) {
+                statistics.invalidRows++;
+            }
+            return false;
+        }
+        consumer.accept(id, lesson, epochDay, completed, notes);
+        if (statistics != null) {
+            statistics.rowsMatched++;
+        }
+        return true;
+    }
+
+    private void malformed(ReadStatistics statistics) {
+        malformedRows.increment();
+        if (statistics != null) {
+            statistics.malformedRows++;
+        }
+    }
+
+    private static Lesson matchLesson(char[] buffer, int start, int end) {
+        for (int ordinal = 0; ordinal < LESSON_TOKENS.length; ordinal++) {
+            if (regionEquals(buffer, start, end, LESSON_TOKENS[ordinal])) {
+                return LESSONS[ordinal];
+            }
+        }
+        return null;
+    }
+
+    //1 for true, 0 for false, -1 for anything else
+    private static int matchBoolean(char[] buffer, int start, int end) {
+        if (end - start == 4 && regionEqualsIgnoreCase(buffer, start, "true")) {
+            return 1;
+        }
+        if (end - start == 5 && regionEqualsIgnoreCase(buffer, start, "false")) {
+            return 0;
+        }
+        return -1;
+    }
+
+    private static int indexOf(char[] buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(char[] buffer, int start, int end, char[] token) {
+        if (end - start != token.length) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (buffer[start + i] != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(char[] buffer, int start, int end, String token) {
+        if (end - start != token.length()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (buffer[start + i] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEqualsIgnoreCase(char[] buffer, int start, String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.toLowerCase(buffer[start + i]) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    The fast path only runs if it reads back exactly what toCSVLine writes:
+    lesson tokens, date pattern and field order are checked once with a probe row.
+     */
+    private static boolean probeFastPath() {
+        if (DATE_PATTERN == null) {
+            return false;
+        }
+        try {
+            Date probeDate = EpochDays.toDate(EpochDays.of(java.time.LocalDate.of(2024, 2, 29)));
+            for (Lesson lesson : LESSONS) {
+                String line = new Assignment(lesson, probeDate, false, "probe").toCSVLine();
+                LESSON_TOKENS[lesson.ordinal()] = line.substring(0, line.indexOf(',')).toCharArray();
+            }
+
+            Lesson validLesson = Arrays.stream(LESSONS)
+                    .filter(lesson -> AssignmentManager.isValid(lesson, "probe"))
+                    .findFirst().orElse(LESSONS[0]);
+            Assignment probe = new Assignment(validLesson, probeDate, true, "probe, notes");
+            char[] line = probe.toCSVLine().toCharArray();
+            boolean[] matches = new boolean[1];
+            int parsed = new AssignmentCsvReader().parseFast(0, line, 0, line.length, (_, lesson, epochDay, completed, notes) ->
+                    matches[0] = lesson == probe.lesson() && epochDay == EpochDays.of(probeDate)
+                            && completed && notes.equals(probe.notes()), null);
+            return parsed == 1 && matches[0];
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses one line at a time, skips the header and rows of other users.
+     * Without a username every row is passed on together with its user.
+     */
+    private final class LineParser {
+        private final String username;
+        private final RowConsumer consumer;
+        private boolean firstLine = true;
+
+        //optional, filled in for reads that are reported
+        private ReadStatistics statistics;
+
+        //username of the last row, only used when reading all users
+        private String rowUsername = "";
+
+        LineParser(String username, RowConsumer consumer) {
+            this.username = username;
+            this.consumer = consumer;
+        }
+
+        LineParser(UserRowConsumer consumer) {
+            this.username = null;
+            this.consumer = (id, lesson, epochDay, completed, notes) ->
+                    consumer.accept(rowUsername, id, lesson, epochDay, completed, notes);
+        }
+
+        void line(char[] buffer, int start, int end) {
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (end <= start) {
+                return;
+            }
+
+            int usernameEnd = indexOf(buffer, start, end);
+            if (firstLine) {
+                firstLine = false;
+                //skip header
+                if (usernameEnd >= 0 && new String(buffer, start, usernameEnd - start).trim().equalsIgnoreCase("username")) {
+                    return;
+                }
+            }
+            if (statistics != null) {
+                statistics.rowsScanned++;
+            }
+            if (usernameEnd < 0) {
+                malformed(statistics);
+                return;
+            }
+            if (username == null) {
+                if (!regionEquals(buffer, start, usernameEnd, rowUsername)) {
+                    rowUsername = new String(buffer, start, usernameEnd - start);
+                }
+            } else if (!regionEquals(buffer, start, usernameEnd, username)) {
+                return;
+            }
+
+            int idEnd = indexOf(buffer, usernameEnd + 1, end);
+            long id = idEnd < 0 ? -1 : parseId(buffer, usernameEnd + 1, idEnd);
+            if (id < 0) {
+                malformed(statistics);
+                return;
+            }
+            parseFields(id, buffer, idEnd + 1, end, consumer, statistics);
+        }
+
+        private static long parseId(char[] buffer, int start, int end) {
+            if (end == start || end - start > 18) {
+                return -1;
+            }
+            long id = 0;
+            for (int i = start; i < end; i++) {
+                char c = buffer[i];
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                id = id * 10 + (c - '0');
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Numeric subset of {@code SimpleDateFormat} patterns (d, dd, M, MM, yyyy and separators),
+     * compiled once. Other patterns disable the fast path.
+     */
+    private static final class DatePattern {
+        private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+        //per segment: 'd', 'M', 'y' or 0 for a literal
+        private final char[] fields;
+        private final char[] literals;
+        private final int[] widths;
+
+        private DatePattern(char[] fields, char[] literals, int[] widths) {
+            this.fields = fields;
+            this.literals = literals;
+            this.widths = widths;
+        }
+
+        static DatePattern compile(String pattern) {
+            int segments = 0;
+            char[] fields = new char[pattern.length()];
+            char[] literals = new char[pattern.length()];
+            int[] widths = new int[pattern.length()];
+
+            for (int i = 0; i < pattern.length(); ) {
+                char c = pattern.charAt(i);
+                int width = 1;
+                while (i + width < pattern.length() && pattern.charAt(i + width) == c) {
+                    width++;
+                }
+
+                if (c == 'd' || c == 'M' || c == 'y') {
+                    boolean supported = switch (c) {
+                        case 'y' -> width == 1 || width == 4;
+                        default -> width <= 2;
+                    };
+                    if (!supported) {
+                        return null;
+                    }
+                    fields[segments] = c;
+                    widths[segments++] = width;
+                    i += width;
+                } else if (Character.isLetter(c) || c == '\'') {
+                    return null;
+                } else {
+                    literals[segments++] = c;
+                    i++;
+                }
+            }
+            return new DatePattern(Arrays.copyOf(fields, segments), Arrays.copyOf(literals, segments),
+                    Arrays.copyOf(widths, segments));
+        }
+
+        //epoch day, or NO_DATE if the text does not strictly match
+        int parse(char[] buffer, int start, int end) {
+            int day = 0;
+            int month = 0;
+            int year = 0;
+            int position = start;
+
+            for (int segment = 0; segment < fields.length; segment++) {
+                if (fields[segment] == 0) {
+                    if (position >= end || buffer[position] != literals[segment]) {
+                        return NO_DATE;
+                    }
+                    position++;
+                    continue;
+                }
+
+                //adjacent numeric fields are split by width, otherwise all digits are taken
+                boolean fixedWidth = segment + 1 < fields.length && fields[segment + 1] != 0;
+                int maxDigits = fixedWidth ? widths[segment] : 9;
+                int value = 0;
+                int digits = 0;
+                while (position < end && digits < maxDigits && buffer[position] >= '0' && buffer[position] <= '9') {
+                    value = value * 10 + (buffer[position++] - '0');
+                    digits++;
+                }
+                if (digits == 0) {
+                    return NO_DATE;
+                }
+                switch (fields[segment]) {
+                    case 'd' -> day = value;
+                    case 'M' -> month = value;
+                    default -> year = value;
+                }
+            }
+
+            if (position != end || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+                return NO_DATE;
+            }
+            return daysFromCivil(year, month, day);
+        }
+
+        private static int daysInMonth(int year, int month) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return month == 2 && leap ? 29 : DAYS_IN_MONTH[month - 1];
+        }
+
+        //proleptic gregorian date to days since 1970-01-01
+        private static int daysFromCivil(int year, int month, int day) {
+            year -= month <= 2 ? 1 : 0;
+            int era = Math.floorDiv(year, 400);
+            int yearOfEra = year - era * 400;
+            int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+            int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+            return era * 146097 + dayOfEra - 719468;
+        }
+    }
+}
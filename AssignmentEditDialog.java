@@ -0,0 +1,64 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Optional;
+
+import static de.hup.home.plan.PlannerConstants.pattern;
+
+/**
+ * Edit dialog of the {@link AssignmentTable}.
+ */
+final class AssignmentEditDialog {
+
+    private AssignmentEditDialog() {}
+
+    /**
+     * Shows the dialog prefilled with data.
+     * Returns the edited assignment, or empty if the user cancelled or entered an invalid date.
+     */
+    static Optional<Assignment> show(@NotNull final Component parent, @NotNull final Assignment data) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+
+        JComboBox<Lesson> lessonCombo = new JComboBox<>(Lesson.values());
+        lessonCombo.setSelectedItem(data.lesson());
+
+        JTextField dateField = new JTextField(dateFormat.format(data.dueDate()));
+        JTextField notesField = new JTextField(data.notes());
+        JCheckBox completedBox = new JCheckBox("Completed", data.completed());
+
+        JPanel editPanel = new JPanel(new GridLayout(4, 2));
+        editPanel.add(new JLabel("Lesson:"));
+        editPanel.add(lessonCombo);
+        editPanel.add(new JLabel("Date:"));
+        editPanel.add(dateField);
+        editPanel.add(new JLabel("Notes:"));
+        editPanel.add(notesField);
+        editPanel.add(new JLabel(""));
+        editPanel.add(completedBox);
+
+        int result = JOptionPane.showConfirmDialog(parent, editPanel, "Edit Assignment", JOptionPane.OK_CANCEL_OPTION);
+        if (!(result == JOptionPane.OK_OPTION)) {
+            return Optional.empty();
+        }
+
+        try {
+            Lesson newLesson = (Lesson) lessonCombo.getSelectedItem();
+            Date newDate = dateFormat.parse(dateField.getText());
+            String newNotes = notesField.getText();
+            boolean newCompleted = completedBox.isSelected();
+
+            return Optional.of(new Assignment(newLesson, newDate, newCompleted, newNotes));
+        } catch (ParseException _) {
+            JOptionPane.showMessageDialog(parent, "Invalid date format. Use " + pattern);
+            return Optional.empty();
+        }
+    }
+}
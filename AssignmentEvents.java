@@ -0,0 +1,85 @@
+package de.hup.home.assignment;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder events for the assignment hot paths, recorded next to the
+ * {@link AssignmentMetrics}. Start a recording with {@code -XX:StartFlightRecording} or
+ * {@code jcmd <pid> JFR.start} and look for the "Student Planner" category.
+ */
+final class AssignmentEvents {
+
+    private AssignmentEvents() {}
+
+    @Name("de.hup.home.assignment.Load")
+    @Label("Assignment Load")
+    @Category({"Student Planner", "Assignments"})
+    @Description("Loading the assignments of one user from the snapshot and the journal")
+    static final class Load extends Event {
+        @Label("Username")
+        String username;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+
+        @Label("Rows Scanned")
+        long rowsScanned;
+
+        @Label("Rows Matched")
+        long rowsMatched;
+
+        @Label("Invalid Rows")
+        long invalidRows;
+
+        @Label("Malformed Rows")
+        long malformedRows;
+
+        @Label("Journal Entries")
+        long journalEntries;
+
+        @Label("Cache Hit")
+        boolean cached;
+    }
+
+    @Name("de.hup.home.assignment.Save")
+    @Label("Assignment Save")
+    @Category({"Student Planner", "Assignments"})
+    @Description("Appending the changes of one user to the journal")
+    static final class Save extends Event {
+        @Label("Username")
+        String username;
+
+        @Label("Changes")
+        int changes;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    @Name("de.hup.home.assignment.Compaction")
+    @Label("Journal Compaction")
+    @Category({"Student Planner", "Assignments"})
+    @Description("Folding the rotated journal into a new snapshot")
+    static final class Compaction extends Event {
+        @Label("Users")
+        int users;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+    }
+
+    @Name("de.hup.home.assignment.UiAction")
+    @Label("Assignment UI Action")
+    @Category({"Student Planner", "UI"})
+    @Description("A button or table handler of the assignment screens")
+    static final class UiAction extends Event {
+        @Label("Action")
+        String action;
+
+        @Label("On Event Dispatch Thread")
+        boolean onEventDispatchThread;
+    }
+}
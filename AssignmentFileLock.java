@@ -0,0 +1,63 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cross-process lock on a {@code .lock} file next to the csv, so two planner processes never read
+ * the journal while the other one appends or compacts. The operating system lock belongs to the
+ * whole JVM (locking twice from one JVM throws), so threads share it: the first acquire locks
+ * the file, the last release unlocks it. Threads of one JVM are coordinated by
+ * {@link AssignmentPersistence}'s own lock, which is always taken after this one.
+ */
+final class AssignmentFileLock {
+
+    private final Path lockPath;
+
+    //guarded by this
+    private FileChannel channel;
+    private FileLock lock;
+    private int holds;
+
+    AssignmentFileLock(@NotNull final Path csvPath) {
+        this.lockPath = csvPath.resolveSibling(csvPath.getFileName() + ".lock");
+    }
+
+    //blocks while another process holds the lock
+    synchronized void acquire() throws IOException {
+        if (holds == 0) {
+            FileChannel opened = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                lock = opened.lock();
+            } catch (IOException | RuntimeException e) {
+                opened.close();
+                throw e;
+            }
+            channel = opened;
+        }
+        holds++;
+    }
+
+    synchronized void release() {
+        if (holds == 0) {
+            throw new IllegalStateException("Lock is not held");
+        }
+        if (--holds > 0) {
+            return;
+        }
+        try {
+            lock.release();
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock = null;
+            channel = null;
+        }
+    }
+}
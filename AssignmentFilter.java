@@ -0,0 +1,43 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * Narrows the due date queries of {@link AssignmentManager} to some lessons (all when empty) and
+ * to open or completed assignments.
+ */
+public record AssignmentFilter(@NotNull Set<Lesson> lessons, @NotNull Completion completion) {
+
+    public enum Completion {
+        ANY, OPEN, COMPLETED
+    }
+
+    public static final AssignmentFilter ALL = new AssignmentFilter(Set.of(), Completion.ANY);
+
+    public AssignmentFilter {
+        lessons = Set.copyOf(lessons);
+    }
+
+    public static AssignmentFilter of(@NotNull final Lesson lesson) {
+        return new AssignmentFilter(Set.of(lesson), Completion.ANY);
+    }
+
+    public AssignmentFilter withCompletion(@NotNull final Completion completion) {
+        return new AssignmentFilter(lessons, completion);
+    }
+
+    boolean test(@NotNull final Assignment data) {
+        if (!lessons.isEmpty() && !lessons.contains(data.lesson())) {
+            return false;
+        }
+        return switch (completion) {
+            case ANY -> true;
+            case OPEN -> !data.completed();
+            case COMPLETED -> data.completed();
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Secondary structure over the assignments of one user, kept up to date by
+ * {@link UserAssignments} on every change instead of being rebuilt from the list.
+ */
+interface AssignmentIndex {
+
+    void added(long id, @NotNull Assignment data);
+
+    void updated(long id, @NotNull Assignment oldData, @NotNull Assignment newData);
+
+    void removed(long id, @NotNull Assignment data);
+
+    //a different user was loaded, added() follows for every assignment
+    void cleared();
+}
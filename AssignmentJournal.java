@@ -0,0 +1,257 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only log of assignment changes, one line per change:
+ * <pre>
+ * A,username,id,payload
+ * U,username,id,payload
+ * D,username,id
+ * </pre>
+ * The id is the stable assignment id, unique per user. Before compaction the journal is rotated
+ * to a second file, so writers can keep appending while the old records are folded into the snapshot.
+ * Not thread safe, {@link AssignmentPersistence} guards every call.
+ */
+final class AssignmentJournal {
+
+    static final String HEADER = "#assignments-journal v2";
+    static final String LEGACY_HEADER = "#assignments-journal v1";
+
+    enum Operation { ADD, UPDATE, DELETE }
+
+    /**
+     * One change of a single user's list, the username is only stored in the file.
+     */
+    record Entry(@NotNull Operation operation, long id, String payload) {
+
+        static Entry add(final long id, @NotNull final String payload) {
+            return new Entry(Operation.ADD, id, payload);
+        }
+
+        static Entry update(final long id, @NotNull final String payload) {
+            return new Entry(Operation.UPDATE, id, payload);
+        }
+
+        static Entry delete(final long id) {
+            return new Entry(Operation.DELETE, id, null);
+        }
+
+        private String toLine(String username) {
+            return switch (operation) {
+                case ADD -> "A," + username + "," + id + "," + payload;
+                case UPDATE -> "U," + username + "," + id + "," + payload;
+                case DELETE -> "D," + username + "," + id;
+            };
+        }
+    }
+
+    private final Path path;
+    private final Path rotatedPath;
+
+    private long records;
+    private long bytes;
+    private final LongAdder malformedRows = new LongAdder();
+
+    AssignmentJournal(@NotNull final Path csvPath) throws IOException {
+        this.path = pathFor(csvPath);
+        this.rotatedPath = rotatedPathFor(csvPath);
+
+        if (Files.exists(path)) {
+            bytes = truncateTornLine(path);
+            ReadStatistics opened = new ReadStatistics();
+            records = readAll(path, opened).values().stream().mapToLong(List::size).sum();
+            malformedRows.add(opened.malformedRows);
+        }
+    }
+
+    /*
+    A crash during append can leave a last line without newline. It was never acknowledged, so it
+    is cut off; otherwise the next append would glue its first record onto it. Returns the new size.
+     */
+    private static long truncateTornLine(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long end = size;
+            while (end > 0) {
+                int length = (int) Math.min(buffer.capacity(), end);
+                buffer.clear().limit(length);
+                long position = end - length;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException(file.toString());
+                    }
+                }
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        long lineEnd = position + i + 1;
+                        if (lineEnd < size) {
+                            channel.truncate(lineEnd);
+                            channel.force(false);
+                            AssignmentMetrics.counter("journal.tornLines").increment();
+                        }
+                        return lineEnd;
+                    }
+                }
+                end = position;
+            }
+            if (size > 0) {
+                channel.truncate(0);
+                channel.force(false);
+                AssignmentMetrics.counter("journal.tornLines").increment();
+            }
+            return 0;
+        }
+    }
+
+    static Path pathFor(@NotNull final Path csvPath) {
+        return csvPath.resolveSibling(baseName(csvPath) + ".journal");
+    }
+
+    static Path rotatedPathFor(@NotNull final Path csvPath) {
+        return csvPath.resolveSibling(baseName(csvPath) + ".journal.compacting");
+    }
+
+    private static String baseName(Path csvPath) {
+        return csvPath.getFileName().toString().replaceFirst("\\.csv$", "");
+    }
+
+    long records() {
+        return records;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    //lines that could not be parsed when the journal was opened, they are skipped on every read
+    long malformedRows() {
+        return malformedRows.sum();
+    }
+
+    void append(@NotNull final String username, @NotNull final List<Entry> entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        if (bytes == 0) {
+            lines.append(HEADER).append('\n');
+        }
+        for (Entry entry : entries) {
+            lines.append(entry.toLine(username)).append('\n');
+        }
+
+        //one write per batch, forced so an acknowledged save survives a crash
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long before = channel.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                //a partly written batch would be glued to the next one
+                channel.truncate(before);
+                throw e;
+            }
+            bytes = channel.size();
+        }
+        records += entries.size();
+    }
+
+    //malformed lines of the whole file are counted in the statistics, they may belong to the user
+    List<Entry> read(@NotNull final String username, final ReadStatistics statistics) throws IOException {
+        return readAll(path, statistics).getOrDefault(username, List.of());
+    }
+
+    List<Entry> readRotated(@NotNull final String username, final ReadStatistics statistics) throws IOException {
+        return readAll(rotatedPath, statistics).getOrDefault(username, List.of());
+    }
+
+    Map<String, List<Entry>> readAll() throws IOException {
+        return readAll(path, null);
+    }
+
+    Map<String, List<Entry>> readAllRotated() throws IOException {
+        return readAll(rotatedPath, null);
+    }
+
+    /**
+     * Moves the live journal aside for compaction. A rotated file left behind by an interrupted
+     * compaction is compacted first, the live journal then waits for the next run.
+     * Returns false if there is nothing to compact.
+     */
+    boolean rotate() throws IOException {
+        if (Files.exists(rotatedPath)) {
+            return true;
+        }
+        if (records == 0) {
+            return false;
+        }
+        Files.move(path, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+        records = 0;
+        bytes = 0;
+        return true;
+    }
+
+    void deleteRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    private static Map<String, List<Entry>> readAll(Path file, ReadStatistics statistics) throws IOException {
+        Map<String, List<Entry>> entries = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        //a last line without newline was torn by a crash during append and is ignored
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            String line = content.substring(start, end);
+            start = end + 1;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (!parseLine(line, entries) && statistics != null) {
+                statistics.malformedRows++;
+            }
+        }
+        return entries;
+    }
+
+    //false if the line is malformed
+    private static boolean parseLine(String line, Map<String, List<Entry>> into) {
+        String[] parts = line.split(",", 4);
+        if (parts.length < 3) {
+            return false;
+        }
+
+        long id;
+        try {
+            id = Long.parseLong(parts[2]);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        Entry entry = switch (parts[0]) {
+            case "A" -> parts.length < 4 ? null : Entry.add(id, parts[3]);
+            case "U" -> parts.length < 4 ? null : Entry.update(id, parts[3]);
+            case "D" -> Entry.delete(id);
+            default -> null;
+        };
+        if (entry == null) {
+            return false;
+        }
+        into.computeIfAbsent(parts[1], _ -> new ArrayList<>()).add(entry);
+        return true;
+    }
+}
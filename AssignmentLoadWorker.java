@@ -0,0 +1,93 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.models.User;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Loads a user's assignments off the event dispatch thread and hands the rows to the table in
+ * pages, so the frame shows right away. The user is read completely before the first page, the
+ * pages only keep the event dispatch thread responsive while a large table fills.
+ * <p>
+ * Only cancel with {@code cancel(false)}: interrupting a thread inside a {@code FileChannel}
+ * operation closes the channel, which would also drop the cross-process file lock.
+ * The worker checks for cancellation between pages instead.
+ */
+final class AssignmentLoadWorker extends SwingWorker<Void, List<Long>> {
+
+    static final int PAGE_SIZE = 100;
+
+    private final AssignmentManager manager;
+    private final AssignmentTableModel model;
+    private final User user;
+    private final Runnable onFinished;
+    private final Consumer<Throwable> onFailed;
+    //read here, the model is only touched on the event dispatch thread
+    private final AssignmentSortCriteria criteria;
+    private final boolean descending;
+    private final int generation;
+
+    //call on the event dispatch thread, the rows are cleared right away
+    AssignmentLoadWorker(@NotNull final AssignmentManager manager, @NotNull final AssignmentTableModel model,
+                         @NotNull final User user, @NotNull final Runnable onFinished,
+                         @NotNull final Consumer<Throwable> onFailed) {
+        this.manager = manager;
+        this.model = model;
+        this.user = user;
+        this.onFinished = onFinished;
+        this.onFailed = onFailed;
+        this.criteria = model.getSortCriteria();
+        this.descending = model.isDescending();
+        this.generation = model.beginLoading();
+    }
+
+    @Override
+    protected Void doInBackground() {
+        manager.loadFromCSVForUser(user);
+        if (isCancelled()) {
+            return null;
+        }
+
+        List<Long> ids = manager.copyAssignmentIds(criteria, descending);
+        for (int from = 0; from < ids.size() && !isCancelled(); from += PAGE_SIZE) {
+            publish(List.copyOf(ids.subList(from, Math.min(from + PAGE_SIZE, ids.size()))));
+        }
+        return null;
+    }
+
+    //pages published while the EDT was busy arrive together
+    @Override
+    protected void process(final List<List<Long>> pages) {
+        if (isCancelled()) {
+            return;
+        }
+        AssignmentMetrics.timeUiAction("loadPage", () -> pages.forEach(page -> model.assignmentsLoaded(generation, page)));
+    }
+
+    //a cancelled or failed load leaves the rows empty and submitting disabled, until the next load
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            model.loadingCancelled(generation);
+            return;
+        }
+        try {
+            get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            model.loadingCancelled(generation);
+            return;
+        } catch (ExecutionException e) {
+            AssignmentMetrics.counter("load.failures").increment();
+            model.loadingCancelled(generation);
+            onFailed.accept(e.getCause());
+            return;
+        }
+        model.loadingFinished(generation);
+        onFinished.run();
+    }
+}
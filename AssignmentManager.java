@@ -2,13 +2,17 @@ package de.hup.home.assignment;
 
 import de.hup.home.logic.data.Assignment;
 import de.hup.home.logic.models.User;
-import de.hup.home.logic.models.UserManager;
+import de.hup.home.plan.enums.Lesson;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
-import java.text.ParseException;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * AssignmentManager
@@ -18,157 +22,252 @@ public class AssignmentManager {
     //TODO: using relative path
     private final String filePath = "src/de/hup/home/files/assignments.csv"; //universal file
 
-    private static final List<Assignment> assignmentsList = new ArrayList<>();
+    private final AssignmentPersistence persistence;
+    private final WriteBehindPersister writeBehind;
 
+    //the loaded user's assignments, shared with every other manager of that user
+    private volatile UserAssignments assignments = UserAssignments.detached();
 
+    //registered with the user only while this manager has listeners, so unused managers are not kept alive
+    private final List<AssignmentChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final AssignmentChangeListener changeForwarder = changes -> changeListeners.forEach(listener -> listener.assignmentsChanged(changes));
 
-    boolean addAssignment(Assignment data) {
-        if (!isValid(data)) return false;
-        assignmentsList.add(data);
-        return true;
+    public AssignmentManager() {
+        this.persistence = AssignmentPersistence.forFile(Path.of(filePath));
+        this.writeBehind = persistence.writeBehind();
     }
 
+    //other file than the universal one, e.g. a generated benchmark dataset
+    AssignmentManager(@NotNull final Path csvPath) {
+        this.persistence = AssignmentPersistence.forFile(csvPath);
+        this.writeBehind = persistence.writeBehind();
+    }
+
+
     /**
-     * Update an existing assignment (replace the first matching oldData).
-     * Returns true if replaced, false if oldData not found.
+     * Adds the assignment under a new id.
+     * Returns the id, or empty if the assignment is invalid.
      */
-    boolean updateAssignment(@NotNull final Assignment oldData, @NotNull final Assignment newData) {
+    OptionalLong addAssignment(Assignment data) {
+        if (!isValid(data)) return OptionalLong.empty();
+        return assignments.add(data);
+    }
+
+    /**
+     * Replace the assignment with the given id.
+     * Returns true if replaced, false if the id is unknown or newData is invalid.
+     */
+    boolean updateAssignment(final long id, @NotNull final Assignment newData) {
         if (!isValid(newData)) return false;
-        int index = assignmentsList.indexOf(oldData);
-        if (index >= 0) {
-            assignmentsList.set(index, newData);
-            return true;
-        }
-        return false;
+        return assignments.update(id, newData);
     }
 
-    //
-    public void removeAssignment(@NotNull final Assignment data) {
-        assignmentsList.remove(data);
-        saveToCSVForUser(UserManager.getInstance().getCurrentUser());
+    //the removal is written in the background like every other change
+    public void removeAssignment(final long id) {
+        assignments.remove(id);
     }
 
+    public Optional<Assignment> getAssignment(final long id) {
+        return assignments.get(id);
+    }
+
+    /**
+     * The assignments of the current version in id order. Not copied and never changed afterwards,
+     * so any thread may iterate it while the user keeps changing.
+     */
     public List<Assignment> getAssignments() {
-        return Collections.unmodifiableList(assignmentsList);
+        return assignments.list();
     }
 
-    //save current user's assignments into the universal file
-    public void saveToCSVForUser(User user) {
-        File file = new File(filePath);
+    /**
+     * The current version of the assignments, taken without locking. Savers and views that need one
+     * consistent state across several reads should work against a snapshot.
+     */
+    public AssignmentSnapshot snapshot() {
+        return assignments.snapshot();
+    }
 
-        List<String> allLines = new ArrayList<>();
-        String header = "username,lesson,date,completed,notes";
+    /**
+     * Read-only view, iteration order is the order the assignments were added in.
+     * Not a copy, only iterate it on the thread that changes this user.
+     */
+    public Map<Long, Assignment> getAssignmentsById() {
+        return assignments.view();
+    }
 
-        //Only replaces the current users data
-        if (file.exists()) {
-            allLines.add(header);
-            allLines.addAll(readOtherUsersLines(file, user));
-        } else {
-            allLines.add(header);
-        }
+    /**
+     * Ids in the requested order. The orders are maintained on every change,
+     * so switching between them does not sort anything.
+     */
+    public Iterable<Long> getAssignmentIds(@NotNull final AssignmentSortCriteria criteria, final boolean descending) {
+        return assignments.ids(criteria, descending);
+    }
 
-        //add the current user's updated assignments
-        allLines.addAll(assignmentsToCSV(user));
-
-        //Write all lines back
-        writeAllLines(file, allLines);
-    }
-
-    private List<String> readOtherUsersLines(File file, User user) {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            boolean isHeader = true;
-            while ((line = reader.readLine()) != null) {
-                if (isHeader) { //skip original header
-                    isHeader = false;
-                    continue;
-                }
-                /*
-                Big time important:
-                lets say we have user alex and alexander.
-                both rows start with 'alex' so a security issue: fixed here
-                 */
-                String[] parts = line.split(",", 2);
-                if (!parts[0].equalsIgnoreCase(user.getUsername())) {
-                    lines.add(line);
-                }
-
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    //like getAssignmentIds, but copied under the user's lock so any thread may call it
+    List<Long> copyAssignmentIds(@NotNull final AssignmentSortCriteria criteria, final boolean descending) {
+        return assignments.copyIds(criteria, descending);
+    }
+
+    /**
+     * Assignments due from {@code from} to {@code to} (both inclusive) that pass the filter,
+     * ordered by due date. Backed by an index of due days, only the days in the range are looked at.
+     */
+    public Map<Long, Assignment> getAssignmentsDueBetween(@NotNull final LocalDate from, @NotNull final LocalDate to,
+                                                          @NotNull final AssignmentFilter filter) {
+        return assignments.due(EpochDays.of(from), EpochDays.of(to), Integer.MAX_VALUE, filter);
+    }
+
+    /**
+     * Open assignments due before today that pass the filter, the oldest first.
+     */
+    public Map<Long, Assignment> getOverdueAssignments(@NotNull final AssignmentFilter filter) {
+        return assignments.due(Integer.MIN_VALUE, EpochDays.today() - 1, Integer.MAX_VALUE,
+                filter.withCompletion(AssignmentFilter.Completion.OPEN));
+    }
+
+    /**
+     * The next {@code count} assignments due today or later that pass the filter.
+     */
+    public Map<Long, Assignment> getNextDueAssignments(final int count, @NotNull final AssignmentFilter filter) {
+        return assignments.due(EpochDays.today(), Integer.MAX_VALUE, count, filter);
+    }
+
+    /**
+     * Open and completed counts, counts per lesson and the open assignments due on each day of the
+     * week containing {@code weekOf}. Kept up to date on every change, no assignment is looked at.
+     */
+    public AssignmentSummary getSummary(@NotNull final LocalDate weekOf) {
+        return assignments.summary(EpochDays.of(weekOf.with(DayOfWeek.MONDAY)));
+    }
+
+    //for the current week
+    public AssignmentSummary getSummary() {
+        return getSummary(LocalDate.now());
+    }
+
+    /**
+     * Ids of the assignments whose notes contain every word of the query, the best matches first.
+     * The last word also matches longer words while it is typed, for search as you type.
+     */
+    public List<Long> searchNotes(@NotNull final String query, final int limit) {
+        return assignments.searchNotes(query, limit);
+    }
+
+    /**
+     * Schedules the user's changes for the journal and returns right away,
+     * use {@link #flush()} to wait for the write.
+     */
+    public void saveToCSVForUser(User user) {
+        AssignmentMetrics.counter("save.requests").increment();
+        //changes of a loaded user are queued already, only detached changes are left
+        writeBehind.markDirty(user.getUsername(), assignments.takePendingChanges());
+    }
+
+    /**
+     * Writes all scheduled changes now. The future completes on the writer thread.
+     */
+    public CompletableFuture<Void> flush() {
+        return writeBehind.flush();
+    }
+
+    /**
+     * Listens to the changes of the loaded user, made through this or any other manager of the user.
+     * Loading another user does not notify, the caller reloads its views after a load anyway.
+     */
+    public synchronized void addChangeListener(@NotNull final AssignmentChangeListener listener) {
+        if (changeListeners.isEmpty()) {
+            assignments.addChangeListener(changeForwarder);
         }
-        return lines;
+        changeListeners.add(listener);
     }
 
-    private List<String> assignmentsToCSV(User user) {
-        List<String> csvLines = new ArrayList<>();
-        for (Assignment data : assignmentsList) {
-            if (isValid(data)) {
-                csvLines.add(user.getUsername() + "," + data.toCSVLine());
-            }
+    public synchronized void removeChangeListener(@NotNull final AssignmentChangeListener listener) {
+        if (changeListeners.remove(listener) && changeListeners.isEmpty()) {
+            assignments.removeChangeListener(changeForwarder);
         }
-        return csvLines;
     }
 
-    private void writeAllLines(File file, List<String> lines) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (String line : lines) {
-                writer.write(line);
-                writer.newLine();
-            }
+    /**
+     * Statistics across every user of the file as of today, e.g. for teachers. Queued changes are
+     * written first. Reads the whole file, so call it off the EDT.
+     */
+    public AssignmentAnalytics.Report computeStatistics() {
+        try {
+            writeBehind.flush().join();
+            return AssignmentAnalytics.analyze(persistence, LocalDate.now());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    //load assignments for a specific user from the universal file
-    public void loadFromCSVForUser(User user) {
-        assignmentsList.clear();
-        File file = new File(filePath);
+    /**
+     * Hits, misses and evictions of the users cached for the file, shared by every manager of it.
+     * The same counts are kept as {@code cache.*} counters in {@link AssignmentMetrics}.
+     */
+    public AssignmentCacheStatistics getCacheStatistics() {
+        return persistence.stores().statistics();
+    }
 
-        if (!file.exists()) {
-            return;
-        }
+    /**
+     * Reminders for the loaded users of the file, shared by every manager of it.
+     */
+    public AssignmentReminders getReminders() {
+        return persistence.reminders();
+    }
+
+    //the next load of every user reads the file again, see AssignmentStores.clear
+    void clearCache() {
+        persistence.stores().clear();
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            boolean firstLine = true;
-            while ((line = reader.readLine()) != null) {
-                //skip header
-                if (firstLine && line.trim().toLowerCase().startsWith("username,")) {
-                    firstLine = false;
-                    continue;
-                }
-                firstLine = false;
-
-                //only load lines belonging to this user
-                if (!line.startsWith(user.getUsername() + ",")) {
-                    continue;
-                }
-
-                String[] parts = line.split(",", 2); //Username already known
-                if (parts.length < 2) {
-                    continue;
-                }
-
-                try {
-                    Assignment data = Assignment.fromCSVLine(parts[1]);
-                    if (isValid(data)) {
-                        assignmentsList.add(data);
-                    }
-                } catch (ParseException | IllegalArgumentException ex) {
-                    ex.printStackTrace();
-                }
-            }
+    /**
+     * Loads assignments for a specific user from the universal file and the journal, or from the
+     * cache of recently loaded users. Managers of different users load and change their users in parallel.
+     */
+    public void loadFromCSVForUser(User user) {
+        AssignmentEvents.Load event = new AssignmentEvents.Load();
+        event.begin();
+        long start = System.nanoTime();
+        ReadStatistics statistics = new ReadStatistics();
+
+        try {
+            switchTo(persistence.stores().load(user.getUsername(), statistics));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+
+        AssignmentMetrics.histogram("load").record(System.nanoTime() - start);
+        AssignmentMetrics.counter("load.bytesRead").add(statistics.bytesRead);
+        AssignmentMetrics.counter("load.rowsScanned").add(statistics.rowsScanned);
+        AssignmentMetrics.counter("load.rowsMatched").add(statistics.rowsMatched);
+        AssignmentMetrics.counter("load.invalidRows").add(statistics.invalidRows);
+        AssignmentMetrics.counter("load.malformedRows").add(statistics.malformedRows);
+        event.username = user.getUsername();
+        event.bytesRead = statistics.bytesRead;
+        event.rowsScanned = statistics.rowsScanned;
+        event.rowsMatched = statistics.rowsMatched;
+        event.invalidRows = statistics.invalidRows;
+        event.malformedRows = statistics.malformedRows;
+        event.journalEntries = statistics.journalEntries;
+        event.cached = statistics.cached;
+        event.commit();
+    }
+
+    private synchronized void switchTo(UserAssignments loaded) {
+        if (loaded != assignments && !changeListeners.isEmpty()) {
+            assignments.removeChangeListener(changeForwarder);
+            loaded.addChangeListener(changeForwarder);
+        }
+        assignments = loaded;
     }
 
     //basic validation rules
-    private boolean isValid(@NotNull final Assignment data) {
-        if (data.notes().trim().isEmpty() || data.notes().equalsIgnoreCase("Notes...")) return false;
-        return !data.lesson().getDisplayName().equals("+");
+    static boolean isValid(@NotNull final Assignment data) {
+        return isValid(data.lesson(), data.notes());
+    }
+
+    static boolean isValid(@NotNull final Lesson lesson, @NotNull final String notes) {
+        if (notes.trim().isEmpty() || notes.equalsIgnoreCase("Notes...")) return false;
+        return !lesson.getDisplayName().equals("+");
     }
 }
@@ -0,0 +1,145 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process counters and latency histograms for loads, saves, compactions and UI handlers.
+ * Query them with {@link #counter(String)} and {@link #histogram(String)} or print all of them with
+ * {@link #dump(PrintStream)}; {@code -Dassignments.metrics.dumpOnExit=true} prints them when the
+ * planner exits. The same measurements are recorded as {@link AssignmentEvents} for Flight Recorder.
+ */
+public final class AssignmentMetrics {
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    static {
+        if (Boolean.getBoolean("assignments.metrics.dumpOnExit")) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(System.err), "assignment-metrics-dump"));
+        }
+    }
+
+    private AssignmentMetrics() {}
+
+    public static Counter counter(@NotNull final String name) {
+        return COUNTERS.computeIfAbsent(name, _ -> new Counter());
+    }
+
+    public static Histogram histogram(@NotNull final String name) {
+        return HISTOGRAMS.computeIfAbsent(name, _ -> new Histogram());
+    }
+
+    /**
+     * Runs a Swing action handler and records its duration under {@code ui.<action>}, together with
+     * the time it kept the event dispatch thread busy.
+     */
+    static void timeUiAction(@NotNull final String action, @NotNull final Runnable handler) {
+        AssignmentEvents.UiAction event = new AssignmentEvents.UiAction();
+        event.action = action;
+        event.onEventDispatchThread = javax.swing.SwingUtilities.isEventDispatchThread();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            handler.run();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            histogram("ui." + action).record(nanos);
+            if (event.onEventDispatchThread) {
+                counter("ui.edtNanos").add(nanos);
+            }
+            event.commit();
+        }
+    }
+
+    public static void dump(@NotNull final PrintStream out) {
+        new TreeMap<>(COUNTERS).forEach((name, counter) -> out.printf("%-32s %d%n", name, counter.value()));
+        new TreeMap<>(HISTOGRAMS).forEach((name, histogram) -> out.printf("%-32s %s%n", name, histogram));
+    }
+
+    /**
+     * Monotonic sum, e.g. rows or bytes.
+     */
+    public static final class Counter {
+        private final LongAdder sum = new LongAdder();
+
+        void add(final long amount) {
+            sum.add(amount);
+        }
+
+        void increment() {
+            sum.increment();
+        }
+
+        public long value() {
+            return sum.sum();
+        }
+    }
+
+    /**
+     * Latencies in power of two buckets of nanoseconds, so recording never allocates or locks.
+     * Percentiles are the upper bound of the bucket they fall into.
+     */
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        public void record(final long nanos) {
+            long value = Math.max(nanos, 0);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long meanNanos() {
+            long samples = count.sum();
+            return samples == 0 ? 0 : totalNanos.sum() / samples;
+        }
+
+        public long maxNanos() {
+            return maxNanos.get();
+        }
+
+        //e.g. 0.99 for p99
+        public long percentileNanos(final double quantile) {
+            long samples = count.sum();
+            if (samples == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * samples);
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length(); bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank) {
+                    return bucket == 0 ? 0 : Math.min((1L << bucket) - 1, maxNanos());
+                }
+            }
+            return maxNanos();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", count(),
+                    millis(meanNanos()), millis(percentileNanos(0.5)), millis(percentileNanos(0.99)), millis(maxNanos()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
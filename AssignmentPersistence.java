@@ -0,0 +1,261 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Storage behind {@link AssignmentManager}: the {@link SnapshotStore} (the universal csv unless the
+ * binary backend is selected) holds the last snapshot, every save only appends the changes of one
+ * user to the {@link AssignmentJournal}. Loads replay the journal on top of the snapshot rows and
+ * the {@link JournalCompactor} folds the journal back into a new snapshot in the background. Saves from the UI go through the {@link WriteBehindPersister}.
+ * One instance exists per csv file so all managers share the same lock: loads of different users
+ * run in parallel under the read lock, appends and the snapshot swap take the write lock. Other
+ * processes are kept out by the {@link AssignmentFileLock}, which is always taken first.
+ */
+final class AssignmentPersistence {
+
+    static final String HEADER = "username,id,lesson,date,completed,notes";
+
+    private static final Map<Path, AssignmentPersistence> INSTANCES = new ConcurrentHashMap<>();
+
+    private final AssignmentCsvReader csvReader = new AssignmentCsvReader();
+    private final SnapshotStore snapshot;
+    private final AssignmentJournal journal;
+    private final JournalCompactor compactor;
+    private final WriteBehindPersister writeBehind;
+    private final AssignmentStores stores;
+    private final AssignmentReminders reminders = AssignmentReminders.withSystemClock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AssignmentFileLock fileLock;
+
+    private AssignmentPersistence(@NotNull final Path csvPath) {
+        this.fileLock = new AssignmentFileLock(csvPath);
+        //the migration rewrites the csv and opening the journal may truncate it
+        try {
+            fileLock.acquire();
+            try {
+                LegacyFormatMigration.migrateIfNeeded(csvPath);
+                this.snapshot = SnapshotStore.open(csvPath, csvReader);
+                this.journal = new AssignmentJournal(csvPath);
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.compactor = new JournalCompactor(this);
+        this.writeBehind = new WriteBehindPersister(this);
+        this.stores = new AssignmentStores(this);
+    }
+
+    static AssignmentPersistence forFile(@NotNull final Path csvPath) {
+        return INSTANCES.computeIfAbsent(csvPath.toAbsolutePath().normalize(), AssignmentPersistence::new);
+    }
+
+    WriteBehindPersister writeBehind() {
+        return writeBehind;
+    }
+
+    AssignmentStores stores() {
+        return stores;
+    }
+
+    AssignmentReminders reminders() {
+        return reminders;
+    }
+
+    //snapshot rows of the user with all journaled changes applied, by id in file order
+    LinkedHashMap<Long, Assignment> load(@NotNull final String username, @NotNull final ReadStatistics statistics) throws IOException {
+        fileLock.acquire();
+        lock.readLock().lock();
+        try {
+            LinkedHashMap<Long, Assignment> rows = readSnapshotRows(username, statistics);
+            List<AssignmentJournal.Entry> rotated = journal.readRotated(username, statistics);
+            List<AssignmentJournal.Entry> current = journal.read(username, statistics);
+            statistics.journalEntries += rotated.size() + current.size();
+            replay(rows, rotated);
+            replay(rows, current);
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+            fileLock.release();
+        }
+    }
+
+    /**
+     * Feeds the current rows of every user into accumulators and merges them, see
+     * {@link SnapshotStore#aggregate}. Rows with journaled changes are taken from the journal, the
+     * snapshot's version of them is skipped.
+     */
+    <A extends SnapshotStore.RowAccumulator<A>> A aggregate(@NotNull final Supplier<A> accumulators) throws IOException {
+        fileLock.acquire();
+        lock.readLock().lock();
+        try {
+            //username -> id -> the last journaled change, rotated first so the live journal wins
+            Map<String, Map<Long, AssignmentJournal.Entry>> journaled = new HashMap<>();
+            for (Map<String, List<AssignmentJournal.Entry>> entries : List.of(journal.readAllRotated(), journal.readAll())) {
+                entries.forEach((username, changes) -> {
+                    Map<Long, AssignmentJournal.Entry> ofUser = journaled.computeIfAbsent(username, _ -> new HashMap<>());
+                    changes.forEach(change -> ofUser.put(change.id(), change));
+                });
+            }
+
+            A result = snapshot.aggregate(accumulators, (username, id) -> {
+                Map<Long, AssignmentJournal.Entry> ofUser = journaled.get(username);
+                return ofUser == null || !ofUser.containsKey(id);
+            });
+            journaled.forEach((username, changes) -> changes.values().forEach(change -> {
+                if (change.operation() != AssignmentJournal.Operation.DELETE) {
+                    csvReader.readPayload(change.id(), change.payload(), (id, lesson, epochDay, completed, notes) ->
+                            result.accept(username, id, lesson, epochDay, completed, notes));
+                }
+            }));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+            fileLock.release();
+        }
+    }
+
+    void append(@NotNull final String username, @NotNull final List<AssignmentJournal.Entry> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        AssignmentEvents.Save event = new AssignmentEvents.Save();
+        event.begin();
+        long start = System.nanoTime();
+        long records;
+        long bytes;
+        long written;
+        fileLock.acquire();
+        lock.writeLock().lock();
+        try {
+            long before = journal.bytes();
+            journal.append(username, changes);
+            records = journal.records();
+            bytes = journal.bytes();
+            written = bytes - before;
+        } finally {
+            lock.writeLock().unlock();
+            fileLock.release();
+        }
+        AssignmentMetrics.histogram("save").record(System.nanoTime() - start);
+        AssignmentMetrics.counter("save.changes").add(changes.size());
+        AssignmentMetrics.counter("save.bytesWritten").add(written);
+        event.username = username;
+        event.changes = changes.size();
+        event.bytesWritten = written;
+        event.commit();
+
+        compactor.maybeCompact(records, bytes);
+    }
+
+    /**
+     * Folds the rotated journal into a new snapshot. Only the users with journaled changes are
+     * decoded, the snapshot carries all other rows over as they are. Called from the compactor thread.
+     * Other processes are locked out for the whole run, threads of this JVM only while the journal
+     * is rotated and while the new snapshot replaces the old one.
+     */
+    void compact() throws IOException {
+        fileLock.acquire();
+        try {
+            compactLocked();
+        } finally {
+            fileLock.release();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!journal.rotate()) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        AssignmentEvents.Compaction event = new AssignmentEvents.Compaction();
+        event.begin();
+        long start = System.nanoTime();
+        ReadStatistics statistics = new ReadStatistics();
+
+        //the snapshot and the rotated journal are only changed by this thread from here on
+        Map<String, LinkedHashMap<Long, Assignment>> changedUsers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<AssignmentJournal.Entry>> user : journal.readAllRotated().entrySet()) {
+            LinkedHashMap<Long, Assignment> rows = readSnapshotRows(user.getKey(), statistics);
+            replay(rows, user.getValue());
+            changedUsers.put(user.getKey(), rows);
+        }
+        SnapshotStore.Replacement replacement = snapshot.prepare(changedUsers, true);
+
+        lock.writeLock().lock();
+        try {
+            replacement.commit();
+            journal.deleteRotated();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        AssignmentMetrics.histogram("compaction").record(System.nanoTime() - start);
+        event.users = changedUsers.size();
+        event.bytesRead = statistics.bytesRead;
+        event.commit();
+    }
+
+    long journalRecords() {
+        lock.readLock().lock();
+        try {
+            return journal.records();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long journalBytes() {
+        lock.readLock().lock();
+        try {
+            return journal.bytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //rows that could not be parsed, they are skipped and dropped on the next compaction
+    long malformedRows() {
+        return csvReader.malformedRows() + snapshot.malformedRows() + journal.malformedRows();
+    }
+
+    long invalidRows() {
+        return csvReader.invalidRows();
+    }
+
+    private LinkedHashMap<Long, Assignment> readSnapshotRows(String username, ReadStatistics statistics) throws IOException {
+        LinkedHashMap<Long, Assignment> rows = new LinkedHashMap<>();
+        snapshot.readUser(username, collectInto(rows), statistics);
+        return rows;
+    }
+
+    //applies journal entries in order, updates keep the position of the row
+    private void replay(LinkedHashMap<Long, Assignment> rows, List<AssignmentJournal.Entry> entries) {
+        AssignmentCsvReader.RowConsumer collector = collectInto(rows);
+        for (AssignmentJournal.Entry entry : entries) {
+            switch (entry.operation()) {
+                case ADD, UPDATE -> csvReader.readPayload(entry.id(), entry.payload(), collector);
+                case DELETE -> rows.remove(entry.id());
+            }
+        }
+    }
+
+    private static AssignmentCsvReader.RowConsumer collectInto(Map<Long, Assignment> rows) {
+        return (id, lesson, epochDay, completed, notes) ->
+                rows.put(id, new Assignment(lesson, EpochDays.toDate(epochDay), completed, notes));
+    }
+}
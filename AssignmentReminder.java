@@ -0,0 +1,20 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+
+/**
+ * A reminder that became due, {@code at} is the time it was scheduled for. Only the id of the
+ * assignment is kept, so pending reminders do not hold on to users that were evicted; sinks look
+ * the assignment up when the reminder arrives.
+ */
+public record AssignmentReminder(@NotNull String username, long id, @NotNull Kind kind, @NotNull Instant at) {
+
+    public enum Kind {
+        //the due day ends within the lead time
+        DUE_SOON,
+        //the due day ended and the assignment is not completed
+        OVERDUE
+    }
+}
@@ -0,0 +1,180 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.plan.enums.Lesson;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * Checks {@link TimingWheel} and {@link AssignmentReminders} against a virtual clock, so days pass
+ * in milliseconds: timers fire on their tick across every level, and reminders are scheduled on add,
+ * rescheduled on update, cancelled on remove or completion and turn from due soon to overdue.
+ * Runs without a test framework and stops with an {@link AssertionError} at the first failure.
+ * <pre>
+ * java de.hup.home.assignment.AssignmentReminderCheck
+ * </pre>
+ */
+final class AssignmentReminderCheck {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 2);
+
+    //moved by hand, the reminders only read it when they schedule or tick
+    private static final class VirtualClock extends Clock {
+        private long millis;
+
+        VirtualClock(Instant start) {
+            this.millis = start.toEpochMilli();
+        }
+
+        void advance(Duration duration) {
+            millis += duration.toMillis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private final VirtualClock clock = new VirtualClock(TODAY.atTime(12, 0).atZone(ZONE).toInstant());
+    private final AssignmentReminders reminders = new AssignmentReminders(clock, Duration.ofHours(24));
+    private final List<AssignmentReminder> received = new ArrayList<>();
+    private final AssignmentIndex user = reminders.forUser("check");
+
+    private AssignmentReminderCheck() {
+        reminders.addSink(received::addAll);
+    }
+
+    public static void main(String[] args) {
+        checkWheelLevels();
+        new AssignmentReminderCheck().checkReminders();
+        System.out.println("Reminders ok");
+    }
+
+    //one deadline right below and above every level boundary, each has to fire on exactly its tick
+    private static void checkWheelLevels() {
+        long start = 1_000_003;
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        List<Long> deadlines = new ArrayList<>();
+        for (int level = 0; level < 4; level++) {
+            long boundary = 1L << (6 * (level + 1));
+            deadlines.addAll(List.of(start + boundary - 1, start + boundary, start + boundary + 1));
+        }
+        TimingWheel.Timer<Long> cancelled = wheel.schedule(start + 5000, -1L);
+        deadlines.forEach(deadline -> wheel.schedule(deadline, deadline));
+        check(wheel.cancel(cancelled), "a scheduled timer can be cancelled");
+        check(!wheel.cancel(cancelled), "a timer is only cancelled once");
+
+        List<Long> fired = new ArrayList<>();
+        long end = start + (1L << 24) + 2;
+        for (long tick = start; tick < end; tick += 997) {
+            long to = Math.min(tick + 997, end);
+            wheel.advance(to, deadline -> {
+                check(deadline == wheel.now(), "timer " + deadline + " fired at tick " + wheel.now());
+                fired.add(deadline);
+            });
+        }
+        check(fired.equals(deadlines.stream().sorted().toList()), "every timer fired once, in order: " + fired);
+        check(wheel.size() == 0, "nothing is left in the wheel");
+    }
+
+    private void checkReminders() {
+        //insert: due soon at the start of the due day, overdue when it ends
+        user.added(1, assignment(TODAY.plusDays(2), false));
+        check(reminders.pendingCount() == 2, "an open assignment has two reminders");
+        advanceTo(TODAY.plusDays(2).atStartOfDay().minusSeconds(1));
+        expectNone();
+        advanceTo(TODAY.plusDays(2).atStartOfDay());
+        expect(1, AssignmentReminder.Kind.DUE_SOON);
+        //overdue transition
+        advanceTo(TODAY.plusDays(3).atStartOfDay().minusSeconds(1));
+        expectNone();
+        advanceTo(TODAY.plusDays(3).atStartOfDay());
+        expect(1, AssignmentReminder.Kind.OVERDUE);
+        check(reminders.pendingCount() == 0, "fired reminders are not pending anymore");
+
+        //a due day months ahead sits on a high level and cascades down until it fires
+        LocalDate later = TODAY.plusDays(3 + 200);
+        user.added(2, assignment(later, false));
+        advanceTo(later.atStartOfDay().minusSeconds(1));
+        expectNone();
+        advanceTo(later.atStartOfDay());
+        expect(2, AssignmentReminder.Kind.DUE_SOON);
+
+        //reschedule on update: nothing fires at the old time
+        LocalDate due = later.plusDays(5);
+        user.added(3, assignment(due, false));
+        user.updated(3, assignment(due, false), assignment(due.plusDays(2), false));
+        check(reminders.pendingCount() == 3, "an update replaces the reminders: " + reminders.pendingCount());
+        advanceTo(due.atStartOfDay());
+        expect(2, AssignmentReminder.Kind.OVERDUE);
+        advanceTo(due.plusDays(2).atStartOfDay());
+        expect(3, AssignmentReminder.Kind.DUE_SOON);
+
+        //cancel on remove and on completion
+        user.removed(3, assignment(due.plusDays(2), false));
+        user.added(4, assignment(due.plusDays(4), false));
+        user.updated(4, assignment(due.plusDays(4), false), assignment(due.plusDays(4), true));
+        check(reminders.pendingCount() == 0, "removed and completed assignments have no reminders");
+        advanceTo(due.plusDays(10).atStartOfDay());
+        expectNone();
+
+        //added after its due soon time: due soon right away, overdue still at the end of the day
+        LocalDate today = clock.instant().atZone(ZONE).toLocalDate();
+        user.added(5, assignment(today, false));
+        advanceTo(clock.instant().atZone(ZONE).toLocalDateTime().plusSeconds(1));
+        expect(5, AssignmentReminder.Kind.DUE_SOON);
+        advanceTo(today.plusDays(1).atStartOfDay());
+        expect(5, AssignmentReminder.Kind.OVERDUE);
+
+        //already overdue when added: nothing
+        user.added(6, assignment(today, false));
+        check(reminders.pendingCount() == 0, "an overdue assignment is not reminded of again");
+    }
+
+    private void advanceTo(LocalDateTime time) {
+        Duration step = Duration.between(clock.instant(), time.atZone(ZONE).toInstant());
+        check(!step.isNegative(), "the clock only moves forward");
+        clock.advance(step);
+        reminders.tick();
+    }
+
+    private void expectNone() {
+        check(received.isEmpty(), "at " + clock.instant() + " nothing was due but got " + received);
+    }
+
+    //exactly this reminder arrived since the last check, not before its time
+    private void expect(long id, AssignmentReminder.Kind kind) {
+        check(received.size() == 1 && received.getFirst().id() == id && received.getFirst().kind() == kind,
+                "at " + clock.instant() + " expected " + id + " " + kind + " but got " + received);
+        check(!received.getFirst().at().isAfter(clock.instant()), "reminder " + received.getFirst() + " arrived early");
+        received.clear();
+    }
+
+    private static Assignment assignment(LocalDate dueDate, boolean completed) {
+        return new Assignment(Lesson.MATH, Date.from(dueDate.atStartOfDay(ZONE).toInstant()), completed, "Check");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.List;
+
+/**
+ * Receives the reminders of {@link AssignmentReminders}, on its ticker thread unless wrapped with
+ * {@link #onEventDispatchThread}. Reminders that became due in the same tick arrive as one call.
+ */
+public interface AssignmentReminderSink {
+
+    void remind(@NotNull List<AssignmentReminder> reminders);
+
+    //for sinks that touch Swing components
+    static AssignmentReminderSink onEventDispatchThread(@NotNull final AssignmentReminderSink sink) {
+        return reminders -> SwingUtilities.invokeLater(() -> sink.remind(reminders));
+    }
+}
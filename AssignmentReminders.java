@@ -0,0 +1,215 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Due soon" and "overdue" reminders for the assignments of every loaded user of one file, see
+ * {@link AssignmentManager#getReminders()}. Each user's {@link UserAssignments} reports its changes
+ * through {@link #forUser}, so reminders are scheduled when an assignment is added, rescheduled
+ * when it is updated and cancelled when it is removed or completed; nothing scans the assignments. The reminders sit in a {@link TimingWheel} with one tick
+ * per second, a ticker thread advances it to the clock and hands what became due to the sinks. The
+ * ticker starts with the first sink, so files nobody shows reminders for run no thread.
+ * <p>
+ * An assignment is overdue once its due day ended, due soon {@code dueSoonLead} before that.
+ * Reminders whose time already passed when the assignment is scheduled are not sent, except due
+ * soon while the assignment is not overdue yet, which is sent right away.
+ */
+public final class AssignmentReminders {
+
+    static final String DUE_SOON_PROPERTY = "assignments.reminders.dueSoonHours";
+    private static final long TICK_MILLIS = 1000;
+
+    private final Clock clock;
+    private final Duration dueSoonLead;
+    private final TimingWheel<AssignmentReminder> wheel;
+    //username -> id -> the pending reminders of that assignment
+    private final Map<String, Map<Long, List<TimingWheel.Timer<AssignmentReminder>>>> pending = new HashMap<>();
+    private final CopyOnWriteArrayList<AssignmentReminderSink> sinks = new CopyOnWriteArrayList<>();
+    //false for a virtual clock, which is advanced with tick()
+    private final boolean ticking;
+    private ScheduledExecutorService ticker;
+
+    AssignmentReminders(@NotNull final Clock clock, @NotNull final Duration dueSoonLead) {
+        this(clock, dueSoonLead, false);
+    }
+
+    private AssignmentReminders(final Clock clock, final Duration dueSoonLead, final boolean ticking) {
+        this.clock = clock;
+        this.dueSoonLead = dueSoonLead;
+        this.ticking = ticking;
+        this.wheel = new TimingWheel<>(currentTick());
+    }
+
+    /**
+     * Reminders ticking with the system clock. The lead time of due soon reminders is
+     * {@value #DUE_SOON_PROPERTY} hours, 24 by default.
+     */
+    static AssignmentReminders withSystemClock() {
+        return new AssignmentReminders(Clock.systemDefaultZone(), Duration.ofHours(Long.getLong(DUE_SOON_PROPERTY, 24)), true);
+    }
+
+    //a sink that was added already is not added twice
+    public void addSink(@NotNull final AssignmentReminderSink sink) {
+        sinks.addIfAbsent(sink);
+        start();
+    }
+
+    public void removeSink(@NotNull final AssignmentReminderSink sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Keeps the reminders of the user in step with its assignments. Every instance of the same user
+     * of this file shares the reminders, a reload clears and schedules them again.
+     */
+    AssignmentIndex forUser(@NotNull final String username) {
+        return new AssignmentIndex() {
+            @Override
+            public void added(long id, @NotNull Assignment data) {
+                schedule(username, id, data);
+            }
+
+            @Override
+            public void updated(long id, @NotNull Assignment oldData, @NotNull Assignment newData) {
+                schedule(username, id, newData);
+            }
+
+            @Override
+            public void removed(long id, @NotNull Assignment data) {
+                cancel(username, id);
+            }
+
+            @Override
+            public void cleared() {
+                cancelAll(username);
+            }
+        };
+    }
+
+    //daemon thread, so reminders never keep the application running
+    private synchronized void start() {
+        if (!ticking || ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "assignment-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Advances to the clock and delivers what became due. Called by the ticker, and directly when
+     * the clock is virtual. Reminders that became due before the first sink was added are delivered
+     * on its first tick.
+     */
+    void tick() {
+        List<AssignmentReminder> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(currentTick(), due::add);
+            for (AssignmentReminder reminder : due) {
+                forget(reminder);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<AssignmentReminder> reminders = List.copyOf(due);
+        AssignmentMetrics.counter("reminders.sent").add(reminders.size());
+        for (AssignmentReminderSink sink : sinks) {
+            try {
+                sink.remind(reminders);
+            } catch (RuntimeException e) {
+                //a failing sink must not stop the ticker
+                AssignmentMetrics.counter("reminders.sinkFailures").increment();
+            }
+        }
+    }
+
+    //number of pending reminders
+    synchronized int pendingCount() {
+        return wheel.size();
+    }
+
+    private synchronized void schedule(String username, long id, Assignment data) {
+        cancel(username, id);
+        if (data.completed()) {
+            return;
+        }
+
+        ZoneId zone = clock.getZone();
+        Instant overdue = Instant.ofEpochMilli(data.dueDate().getTime()).atZone(zone).toLocalDate()
+                .plusDays(1).atStartOfDay(zone).toInstant();
+        Instant dueSoon = overdue.minus(dueSoonLead);
+        long overdueTick = tickOf(overdue.toEpochMilli());
+        if (overdueTick <= currentTick() || !wheel.covers(overdueTick)) {
+            return;
+        }
+
+        List<TimingWheel.Timer<AssignmentReminder>> timers = new ArrayList<>(2);
+        //a due soon time that passed fires on the next tick
+        timers.add(wheel.schedule(tickOf(dueSoon.toEpochMilli()),
+                new AssignmentReminder(username, id, AssignmentReminder.Kind.DUE_SOON, dueSoon)));
+        timers.add(wheel.schedule(overdueTick,
+                new AssignmentReminder(username, id, AssignmentReminder.Kind.OVERDUE, overdue)));
+        pending.computeIfAbsent(username, _ -> new HashMap<>()).put(id, timers);
+    }
+
+    private synchronized void cancel(String username, long id) {
+        Map<Long, List<TimingWheel.Timer<AssignmentReminder>>> ofUser = pending.get(username);
+        if (ofUser == null) {
+            return;
+        }
+        List<TimingWheel.Timer<AssignmentReminder>> timers = ofUser.remove(id);
+        if (timers != null) {
+            timers.forEach(wheel::cancel);
+        }
+        if (ofUser.isEmpty()) {
+            pending.remove(username);
+        }
+    }
+
+    private synchronized void cancelAll(String username) {
+        Map<Long, List<TimingWheel.Timer<AssignmentReminder>>> ofUser = pending.remove(username);
+        if (ofUser != null) {
+            ofUser.values().forEach(timers -> timers.forEach(wheel::cancel));
+        }
+    }
+
+    //drops the bookkeeping of a fired reminder once none of the assignment is left
+    private void forget(AssignmentReminder reminder) {
+        Map<Long, List<TimingWheel.Timer<AssignmentReminder>>> ofUser = pending.get(reminder.username());
+        if (ofUser == null) {
+            return;
+        }
+        List<TimingWheel.Timer<AssignmentReminder>> timers = ofUser.get(reminder.id());
+        if (timers != null && timers.stream().noneMatch(TimingWheel.Timer::isScheduled)) {
+            ofUser.remove(reminder.id());
+            if (ofUser.isEmpty()) {
+                pending.remove(reminder.username());
+            }
+        }
+    }
+
+    //the clock rounded down and deadlines rounded up, so a reminder never fires early
+    private long currentTick() {
+        return Math.floorDiv(clock.millis(), TICK_MILLIS);
+    }
+
+    private static long tickOf(long millis) {
+        return Math.floorDiv(millis + TICK_MILLIS - 1, TICK_MILLIS);
+    }
+}
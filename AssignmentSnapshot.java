@@ -0,0 +1,368 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable version of one user's assignments. Any thread may read it without locks while the
+ * user keeps changing, it never changes itself. Versions share structure: the ids form a radix
+ * trie of 32-way nodes, a change copies only the nodes on the path to its id, so publishing a new
+ * version costs O(log32 n) and taking the current one O(1).
+ * <p>
+ * Assignments are ordered by id, which is the order they were added in for everything added through
+ * the planner.
+ */
+public final class AssignmentSnapshot {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    static final AssignmentSnapshot EMPTY = new AssignmentSnapshot(null, 0, 0);
+
+    /**
+     * Only the present children are stored, the bitmap tells which digits they belong to. Children
+     * are nodes, or assignments on the lowest level (shift 0).
+     */
+    private record Node(int bitmap, Object[] children, int size) {
+
+        int index(int digit) {
+            return Integer.bitCount(bitmap & ((1 << digit) - 1));
+        }
+
+        boolean has(int digit) {
+            return (bitmap & (1 << digit)) != 0;
+        }
+    }
+
+    private final Node root;
+    //the root covers ids below 1 << (shift + BITS)
+    private final int shift;
+    private final long version;
+
+    private AssignmentSnapshot(Node root, int shift, long version) {
+        this.root = root;
+        this.shift = shift;
+        this.version = version;
+    }
+
+    /**
+     * Counts the changes of the user, a higher version is a later state.
+     */
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return root == null ? 0 : root.size();
+    }
+
+    public Optional<Assignment> get(final long id) {
+        if (root == null || id < 0 || (id >>> (shift + BITS)) != 0) {
+            return Optional.empty();
+        }
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int digit = (int) (id >>> level) & MASK;
+            if (!node.has(digit)) {
+                return Optional.empty();
+            }
+            Object child = node.children()[node.index(digit)];
+            if (level == 0) {
+                return Optional.of((Assignment) child);
+            }
+            node = (Node) child;
+        }
+    }
+
+    //in id order
+    public void forEach(@NotNull final BiConsumer<Long, Assignment> action) {
+        if (root != null) {
+            forEach(root, shift, 0, action);
+        }
+    }
+
+    /**
+     * The assignments in id order as a list view, {@code get(index)} walks down by the subtree sizes.
+     */
+    public List<Assignment> values() {
+        return new AbstractList<>() {
+            @Override
+            public Assignment get(int index) {
+                Objects.checkIndex(index, size());
+                Node node = root;
+                for (int level = shift; ; level -= BITS) {
+                    for (Object child : node.children()) {
+                        int childSize = level == 0 ? 1 : ((Node) child).size();
+                        if (index < childSize) {
+                            if (level == 0) {
+                                return (Assignment) child;
+                            }
+                            node = (Node) child;
+                            break;
+                        }
+                        index -= childSize;
+                    }
+                }
+            }
+
+            @Override
+            public int size() {
+                return AssignmentSnapshot.this.size();
+            }
+
+            @Override
+            public @NotNull Iterator<Assignment> iterator() {
+                Iterator<Map.Entry<Long, Assignment>> entries = entryIterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Assignment next() {
+                        return entries.next().getValue();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Read-only map view in id order.
+     */
+    public Map<Long, Assignment> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public Assignment get(Object key) {
+                return key instanceof Long id ? AssignmentSnapshot.this.get(id).orElse(null) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public int size() {
+                return AssignmentSnapshot.this.size();
+            }
+
+            @Override
+            public @NotNull Set<Entry<Long, Assignment>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public @NotNull Iterator<Entry<Long, Assignment>> iterator() {
+                        return entryIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return AssignmentSnapshot.this.size();
+                    }
+                };
+            }
+        };
+    }
+
+    //the next version with the assignment put under the id
+    AssignmentSnapshot with(final long id, @NotNull final Assignment data, final long newVersion) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        Node newRoot = root == null ? new Node(0, new Object[0], 0) : root;
+        int newShift = shift;
+        while ((id >>> (newShift + BITS)) != 0) {
+            //grow: the old root becomes child 0 of a new one
+            newRoot = newRoot.size() == 0
+                    ? newRoot
+                    : new Node(1, new Object[]{newRoot}, newRoot.size());
+            newShift += BITS;
+        }
+        return new AssignmentSnapshot(put(newRoot, newShift, id, data), newShift, newVersion);
+    }
+
+    //the next version without the id
+    AssignmentSnapshot without(final long id, final long newVersion) {
+        if (get(id).isEmpty()) {
+            return new AssignmentSnapshot(root, shift, newVersion);
+        }
+        Node newRoot = remove(root, shift, id);
+        return newRoot == null ? new AssignmentSnapshot(null, 0, newVersion) : new AssignmentSnapshot(newRoot, shift, newVersion);
+    }
+
+    /**
+     * Builds a version from scratch, every node is created once.
+     */
+    static AssignmentSnapshot of(@NotNull final Map<Long, Assignment> assignments, final long version) {
+        if (assignments.isEmpty()) {
+            return new AssignmentSnapshot(null, 0, version);
+        }
+        long[] ids = new long[assignments.size()];
+        Assignment[] values = new Assignment[ids.length];
+        int i = 0;
+        for (Map.Entry<Long, Assignment> entry : assignments.entrySet()) {
+            ids[i++] = entry.getKey();
+        }
+        Arrays.sort(ids);
+        for (i = 0; i < ids.length; i++) {
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException("Negative id: " + ids[i]);
+            }
+            values[i] = assignments.get(ids[i]);
+        }
+
+        int shift = 0;
+        while ((ids[ids.length - 1] >>> (shift + BITS)) != 0) {
+            shift += BITS;
+        }
+        return new AssignmentSnapshot(build(ids, values, 0, ids.length, shift), shift, version);
+    }
+
+    private static Node build(long[] ids, Assignment[] values, int from, int to, int level) {
+        int bitmap = 0;
+        List<Object> children = new ArrayList<>();
+        for (int start = from; start < to; ) {
+            int digit = (int) (ids[start] >>> level) & MASK;
+            int end = start + 1;
+            while (end < to && ((int) (ids[end] >>> level) & MASK) == digit) {
+                end++;
+            }
+            bitmap |= 1 << digit;
+            children.add(level == 0 ? values[start] : build(ids, values, start, end, level - BITS));
+            start = end;
+        }
+        return new Node(bitmap, children.toArray(), to - from);
+    }
+
+    private static Node put(Node node, int level, long id, Assignment data) {
+        int digit = (int) (id >>> level) & MASK;
+        int index = node.index(digit);
+        boolean present = node.has(digit);
+
+        Object child;
+        int sizeChange;
+        if (level == 0) {
+            child = data;
+            sizeChange = present ? 0 : 1;
+        } else {
+            Node old = present ? (Node) node.children()[index] : new Node(0, new Object[0], 0);
+            Node updated = put(old, level - BITS, id, data);
+            child = updated;
+            sizeChange = updated.size() - old.size();
+        }
+
+        Object[] children;
+        if (present) {
+            children = node.children().clone();
+            children[index] = child;
+        } else {
+            children = new Object[node.children().length + 1];
+            System.arraycopy(node.children(), 0, children, 0, index);
+            children[index] = child;
+            System.arraycopy(node.children(), index, children, index + 1, node.children().length - index);
+        }
+        return new Node(node.bitmap() | (1 << digit), children, node.size() + sizeChange);
+    }
+
+    //null once the node is empty, the id must be present
+    private static Node remove(Node node, int level, long id) {
+        int digit = (int) (id >>> level) & MASK;
+        int index = node.index(digit);
+        Node child = level == 0 ? null : remove((Node) node.children()[index], level - BITS, id);
+
+        if (child != null) {
+            Object[] children = node.children().clone();
+            children[index] = child;
+            return new Node(node.bitmap(), children, node.size() - 1);
+        }
+        if (node.children().length == 1) {
+            return null;
+        }
+        Object[] children = new Object[node.children().length - 1];
+        System.arraycopy(node.children(), 0, children, 0, index);
+        System.arraycopy(node.children(), index + 1, children, index, children.length - index);
+        return new Node(node.bitmap() & ~(1 << digit), children, node.size() - 1);
+    }
+
+    private static void forEach(Node node, int level, long prefix, BiConsumer<Long, Assignment> action) {
+        int bits = node.bitmap();
+        for (Object child : node.children()) {
+            int digit = Integer.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            long id = prefix | ((long) digit << level);
+            if (level == 0) {
+                action.accept(id, (Assignment) child);
+            } else {
+                forEach((Node) child, level - BITS, id, action);
+            }
+        }
+    }
+
+    //depth first with one frame per level
+    private Iterator<Map.Entry<Long, Assignment>> entryIterator() {
+        return new Iterator<>() {
+            private final int levels = shift / BITS + 1;
+            private final Node[] nodes = new Node[levels];
+            private final int[] positions = new int[levels];
+            private final int[] remainingBits = new int[levels];
+            private final long[] prefixes = new long[levels];
+            private int depth = -1;
+            private Map.Entry<Long, Assignment> next;
+
+            {
+                if (root != null) {
+                    push(root, 0);
+                    advance();
+                }
+            }
+
+            private void push(Node node, long prefix) {
+                depth++;
+                nodes[depth] = node;
+                positions[depth] = 0;
+                remainingBits[depth] = node.bitmap();
+                prefixes[depth] = prefix;
+            }
+
+            private void advance() {
+                next = null;
+                while (depth >= 0) {
+                    Node node = nodes[depth];
+                    if (positions[depth] == node.children().length) {
+                        depth--;
+                        continue;
+                    }
+                    int level = shift - depth * BITS;
+                    int digit = Integer.numberOfTrailingZeros(remainingBits[depth]);
+                    remainingBits[depth] &= remainingBits[depth] - 1;
+                    Object child = node.children()[positions[depth]++];
+                    long id = prefixes[depth] | ((long) digit << level);
+                    if (level == 0) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(id, (Assignment) child);
+                        return;
+                    }
+                    push((Node) child, id);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<Long, Assignment> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Long, Assignment> current = next;
+                advance();
+                return current;
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+
+/**
+ * Orders the assignment list can be shown in. {@link #ADDED} is the order the assignments were added in.
+ */
+public enum AssignmentSortCriteria {
+    ADDED("Added", null),
+    DUE_DATE("Due date", Comparator.comparing(Assignment::dueDate)),
+    LESSON("Lesson", Comparator.comparing(data -> data.lesson().getDisplayName())),
+    COMPLETED("Completed", Comparator.comparing(Assignment::completed)),
+    NOTES("Notes", Comparator.comparing(Assignment::notes, String.CASE_INSENSITIVE_ORDER));
+
+    private final String displayName;
+    private final Comparator<Assignment> comparator;
+
+    AssignmentSortCriteria(@NotNull final String displayName, final Comparator<Assignment> comparator) {
+        this.displayName = displayName;
+        this.comparator = comparator;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    //null for ADDED
+    Comparator<Assignment> comparator() {
+        return comparator;
+    }
+}
@@ -0,0 +1,156 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@link UserAssignments} of every user loaded from one csv, shared by all managers of that
+ * file. Loads are serialized per user with striped locks: two loads of the same user never run
+ * at once, loads of users on different stripes run in parallel.
+ * <p>
+ * Loaded users stay cached, so logging in again does not touch the file. The cache is bounded by
+ * {@code assignments.cache.maxUsers} (default 256) and {@code assignments.cache.maxBytes}
+ * (estimated heap, default 64 MiB) and evicts the least recently loaded users. Changes of an evicted
+ * user that are still queued are written back right away. A manager that still shows an evicted
+ * user keeps its instance, and the next load of that user picks the same instance up again, so
+ * there are never two diverging copies of one user. All changes go through this process, changes
+ * written by another process are only seen after the user was evicted (or with a size of 0).
+ */
+final class AssignmentStores {
+
+    private static final int STRIPES = 64;
+    static final int DEFAULT_MAX_USERS = 256;
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final AssignmentPersistence persistence;
+    private final int maxUsers;
+    private final long maxBytes;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    //least recently loaded first, guarded by itself
+    private final LinkedHashMap<String, UserAssignments> cached = new LinkedHashMap<>(16, 0.75f, true);
+    //evicted users a manager may still hold
+    private final Map<String, WeakReference<UserAssignments>> evicted = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+
+    AssignmentStores(@NotNull final AssignmentPersistence persistence) {
+        this(persistence, Integer.getInteger("assignments.cache.maxUsers", DEFAULT_MAX_USERS),
+                Long.getLong("assignments.cache.maxBytes", DEFAULT_MAX_BYTES));
+    }
+
+    AssignmentStores(@NotNull final AssignmentPersistence persistence, final int maxUsers, final long maxBytes) {
+        this.persistence = persistence;
+        this.maxUsers = maxUsers;
+        this.maxBytes = maxBytes;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the shared instance of the user, from the cache or loaded from the file. Changes of
+     * the user that are still queued are written first, so the file is up to date when it is read.
+     */
+    UserAssignments load(@NotNull final String username, @NotNull final ReadStatistics statistics) throws IOException {
+        ReentrantLock stripe = stripes[Math.floorMod(username.hashCode(), STRIPES)];
+        stripe.lock();
+        try {
+            UserAssignments assignments;
+            synchronized (cached) {
+                assignments = cached.get(username);
+            }
+            if (assignments == null) {
+                WeakReference<UserAssignments> reference = evicted.remove(username);
+                assignments = reference == null ? null : reference.get();
+            }
+
+            if (assignments != null) {
+                hits.increment();
+                AssignmentMetrics.counter("cache.hits").increment();
+                statistics.cached = true;
+            } else {
+                misses.increment();
+                AssignmentMetrics.counter("cache.misses").increment();
+                assignments = new UserAssignments(username, persistence.writeBehind(), persistence.reminders());
+                assignments.reload(() -> {
+                    persistence.writeBehind().flush().join();
+                    return persistence.load(username, statistics);
+                });
+            }
+
+            synchronized (cached) {
+                cached.put(username, assignments);
+            }
+            evictOverflow(username);
+            return assignments;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Forgets every loaded user, so the next load of each one reads the file again. Queued changes
+     * are written first. Only for callers that load right away and drop the instances they hold,
+     * like the benchmark: an instance kept elsewhere would diverge from the one loaded next.
+     */
+    void clear() {
+        if (persistence.writeBehind().isDirty()) {
+            persistence.writeBehind().flush().join();
+        }
+        synchronized (cached) {
+            cached.clear();
+        }
+        evicted.clear();
+    }
+
+    AssignmentCacheStatistics statistics() {
+        synchronized (cached) {
+            return new AssignmentCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), writeBacks.sum(), cached.size(),
+                    cached.values().stream().mapToLong(UserAssignments::estimatedBytes).sum());
+        }
+    }
+
+    //oldest users first, the user that was just loaded always stays
+    private void evictOverflow(String keep) {
+        List<UserAssignments> victims = new ArrayList<>();
+        synchronized (cached) {
+            long bytes = cached.values().stream().mapToLong(UserAssignments::estimatedBytes).sum();
+            Iterator<Map.Entry<String, UserAssignments>> eldest = cached.entrySet().iterator();
+            while ((cached.size() > maxUsers || bytes > maxBytes) && eldest.hasNext()) {
+                Map.Entry<String, UserAssignments> entry = eldest.next();
+                if (entry.getKey().equals(keep)) {
+                    continue;
+                }
+                bytes -= entry.getValue().estimatedBytes();
+                victims.add(entry.getValue());
+                eldest.remove();
+            }
+        }
+
+        boolean writeBack = false;
+        for (UserAssignments victim : victims) {
+            evicted.put(victim.username(), new WeakReference<>(victim));
+            evictions.increment();
+            AssignmentMetrics.counter("cache.evictions").increment();
+            if (persistence.writeBehind().isDirty(victim.username())) {
+                writeBacks.increment();
+                AssignmentMetrics.counter("cache.writeBacks").increment();
+                writeBack = true;
+            }
+        }
+        if (writeBack) {
+            persistence.writeBehind().flush();
+        }
+        evicted.values().removeIf(reference -> reference.get() == null);
+    }
+}
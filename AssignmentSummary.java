@@ -0,0 +1,28 @@
+package de.hup.home.assignment;
+
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts over the assignments of the loaded user. {@code openDueByWeekday} holds the open
+ * assignments due on each day of one week, monday first, like the columns of the week plan.
+ */
+public record AssignmentSummary(int open, int completed,
+                                @NotNull Map<Lesson, AssignmentAnalytics.LessonCompletion> perLesson,
+                                @NotNull List<Integer> openDueByWeekday) {
+
+    public AssignmentSummary {
+        //kept in lesson order
+        perLesson = perLesson.isEmpty() ? Map.of() : Collections.unmodifiableMap(new EnumMap<>(perLesson));
+        openDueByWeekday = List.copyOf(openDueByWeekday);
+    }
+
+    public int total() {
+        return open + completed;
+    }
+}
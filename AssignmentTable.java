@@ -0,0 +1,140 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static de.hup.home.plan.PlannerConstants.pattern;
+
+/**
+ * Virtualized list of assignments. Unlike one component per assignment, the table only
+ * paints the visible rows with shared renderers, edit and delete are handled by hit-testing clicks
+ * on the button columns.
+ */
+class AssignmentTable extends JTable {
+
+    private static final Font CELL_FONT = new Font("SansSerif", Font.BOLD, 12);
+    private static final int ROW_HEIGHT = 32;
+
+    private final AssignmentTableModel model;
+    private final AssignmentManager manager;
+
+    AssignmentTable(@NotNull final AssignmentTableModel model, @NotNull final AssignmentManager manager) {
+        super(model);
+        this.model = model;
+        this.manager = manager;
+
+        setRowHeight(ROW_HEIGHT);
+        setFont(CELL_FONT);
+        setFillsViewportHeight(true);
+        setShowVerticalLines(false);
+        setGridColor(new Color(200, 200, 200));
+        setRowSelectionAllowed(false);
+        getTableHeader().setReorderingAllowed(false);
+
+        setDefaultRenderer(Object.class, new TextRenderer());
+        ButtonRenderer buttonRenderer = new ButtonRenderer();
+        getColumnModel().getColumn(AssignmentTableModel.EDIT_COLUMN).setCellRenderer(buttonRenderer);
+        getColumnModel().getColumn(AssignmentTableModel.DELETE_COLUMN).setCellRenderer(buttonRenderer);
+
+        getColumnModel().getColumn(AssignmentTableModel.LESSON_COLUMN).setPreferredWidth(90);
+        getColumnModel().getColumn(AssignmentTableModel.DUE_DATE_COLUMN).setPreferredWidth(80);
+        getColumnModel().getColumn(AssignmentTableModel.COMPLETED_COLUMN).setPreferredWidth(70);
+        getColumnModel().getColumn(AssignmentTableModel.NOTES_COLUMN).setPreferredWidth(200);
+        getColumnModel().getColumn(AssignmentTableModel.EDIT_COLUMN).setPreferredWidth(60);
+        getColumnModel().getColumn(AssignmentTableModel.DELETE_COLUMN).setPreferredWidth(70);
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = rowAtPoint(e.getPoint());
+                int column = columnAtPoint(e.getPoint());
+                if (row < 0 || column < 0 || !SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+                switch (convertColumnIndexToModel(column)) {
+                    case AssignmentTableModel.EDIT_COLUMN -> editRow(row);
+                    case AssignmentTableModel.DELETE_COLUMN -> AssignmentMetrics.timeUiAction("table.delete", () -> deleteRow(row));
+                    default -> {
+                        if (e.getClickCount() == 2) {
+                            editRow(row);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    //full notes as tooltip, the column cuts long notes off
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int row = rowAtPoint(e.getPoint());
+        int column = columnAtPoint(e.getPoint());
+        if (row < 0 || column < 0 || convertColumnIndexToModel(column) != AssignmentTableModel.NOTES_COLUMN) {
+            return null;
+        }
+        Assignment data = model.getAssignmentAt(convertRowIndexToModel(row));
+        return data == null ? null : data.notes();
+    }
+
+    private void editRow(int row) {
+        int modelRow = convertRowIndexToModel(row);
+        long id = model.getIdAt(modelRow);
+        Assignment data = model.getAssignmentAt(modelRow);
+        if (data == null) {
+            return;
+        }
+
+        //only applying the result is timed, not the time the dialog is open
+        AssignmentEditDialog.show(this, data).ifPresent(newData -> AssignmentMetrics.timeUiAction("table.edit", () -> {
+            //the model follows the manager's change events
+            if (!manager.updateAssignment(id, newData)) {
+                manager.addAssignment(newData);
+            }
+        }));
+    }
+
+    private void deleteRow(int row) {
+        long id = model.getIdAt(convertRowIndexToModel(row));
+        manager.removeAssignment(id);
+    }
+
+    /**
+     * Text cells, dates are formatted with the planner pattern.
+     */
+    private static final class TextRenderer extends DefaultTableCellRenderer {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Date date ? dateFormat.format(date) : value == null ? "" : value.toString());
+        }
+    }
+
+    /**
+     * One button instance paints every edit and delete cell.
+     */
+    private static final class ButtonRenderer implements TableCellRenderer {
+        private final JButton button = new JButton();
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            button.setText(value == null ? "" : value.toString());
+            return button;
+        }
+    }
+}
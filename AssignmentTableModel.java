@@ -0,0 +1,312 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Table model over the assignments of an {@link AssignmentManager}.
+ * Only the ids are kept per row, the data is looked up by id when a visible cell is painted.
+ */
+class AssignmentTableModel extends AbstractTableModel implements AssignmentChangeListener {
+
+    static final int LESSON_COLUMN = 0;
+    static final int DUE_DATE_COLUMN = 1;
+    static final int COMPLETED_COLUMN = 2;
+    static final int NOTES_COLUMN = 3;
+    static final int EDIT_COLUMN = 4;
+    static final int DELETE_COLUMN = 5;
+
+    private static final String[] COLUMN_NAMES = {"Lesson", "Due", "Completed", "Notes", "", ""};
+    private static final int SEARCH_LIMIT = 500;
+    //above this many changes one rebuild is cheaper than a row event per change
+    private static final int BULK_CHANGES = 64;
+
+    private final AssignmentManager manager;
+    private final List<Long> rowIds = new ArrayList<>();
+    //id -> row of every shown id, exact for the rows below indexedRows; rows that moved are caught up on lookup
+    private final Map<Long, Integer> rowIndex = new HashMap<>();
+    private int indexedRows;
+
+    private AssignmentSortCriteria sortCriteria = AssignmentSortCriteria.ADDED;
+    private boolean descending;
+    //while not blank the rows are the search results, best match first
+    private String query = "";
+    //bumped whenever the rows are rebuilt, pages of an older load are dropped then
+    private int generation;
+    private boolean loading;
+    private boolean changedWhileLoading;
+
+    AssignmentTableModel(@NotNull final AssignmentManager manager) {
+        this.manager = manager;
+        manager.addChangeListener(this);
+    }
+
+    //stops following the manager, for models that are thrown away before it
+    void dispose() {
+        manager.removeChangeListener(this);
+    }
+
+    //rebuilds the rows from the manager, e.g. after a user was loaded
+    void reload() {
+        generation++;
+        clearRows();
+        if (query.isBlank()) {
+            manager.getAssignmentIds(sortCriteria, descending).forEach(this::appendRow);
+        } else {
+            manager.searchNotes(query, SEARCH_LIMIT).forEach(this::appendRow);
+        }
+        fireTableDataChanged();
+    }
+
+    //the rows stay empty until the pages of the load arrive
+    int beginLoading() {
+        loading = true;
+        changedWhileLoading = false;
+        clearRows();
+        fireTableDataChanged();
+        return ++generation;
+    }
+
+    //pages still on the way are dropped, the rows stay empty and ignore changes until the next load
+    void loadingCancelled(final int loadGeneration) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        generation++;
+        clearRows();
+        fireTableDataChanged();
+    }
+
+    //a page in the current sort order, ignored once the rows were rebuilt or while searching
+    void assignmentsLoaded(final int loadGeneration, @NotNull final List<Long> ids) {
+        if (loadGeneration != generation || !query.isBlank() || ids.isEmpty()) {
+            return;
+        }
+        int first = rowIds.size();
+        ids.forEach(this::appendRow);
+        fireTableRowsInserted(first, rowIds.size() - 1);
+    }
+
+    //rows rebuilt or changed during the load may have missed the user, they are rebuilt from the loaded one
+    void loadingFinished(final int loadGeneration) {
+        loading = false;
+        if (loadGeneration != generation || !query.isBlank() || changedWhileLoading) {
+            reload();
+        }
+    }
+
+    //one batch of changes, applied as row events; search results and big batches are rebuilt instead
+    @Override
+    public void assignmentsChanged(@NotNull final AssignmentChanges changes) {
+        if (loading) {
+            changedWhileLoading = true;
+            return;
+        }
+        if (changes.reloaded() || !query.isBlank() || changes.size() > BULK_CHANGES) {
+            reload();
+            return;
+        }
+        changes.removed().forEach(this::assignmentRemoved);
+        changes.updated().forEach(this::assignmentUpdated);
+        changes.added().forEach(this::assignmentAdded);
+    }
+
+    //a blank query shows every assignment in the sort order again
+    void search(@NotNull final String query) {
+        this.query = query;
+        reload();
+    }
+
+    //the manager keeps every order up to date, switching only iterates a different one
+    void sortBy(@NotNull final AssignmentSortCriteria criteria, final boolean descending) {
+        this.sortCriteria = criteria;
+        this.descending = descending;
+        reload();
+    }
+
+    AssignmentSortCriteria getSortCriteria() {
+        return sortCriteria;
+    }
+
+    boolean isDescending() {
+        return descending;
+    }
+
+    //a reload since the change may already show the row
+    private void assignmentAdded(final long id) {
+        if (rowIndex.containsKey(id)) {
+            return;
+        }
+        //removed again before the change arrived, its removal follows
+        Optional<Assignment> data = manager.getAssignment(id);
+        if (data.isEmpty()) {
+            return;
+        }
+        int row = insertionRow(id, data.get());
+        insertRow(row, id);
+        fireTableRowsInserted(row, row);
+    }
+
+    private void assignmentUpdated(final long id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return;
+        }
+        if (sortCriteria == AssignmentSortCriteria.ADDED) {
+            fireTableRowsUpdated(row, row);
+            return;
+        }
+        //the new data may belong somewhere else in the current order
+        removeRow(row);
+        fireTableRowsDeleted(row, row);
+        assignmentAdded(id);
+    }
+
+    private void assignmentRemoved(final long id) {
+        int row = rowOf(id);
+        if (row >= 0) {
+            removeRow(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    //-1 if the id is not shown
+    private int rowOf(long id) {
+        Integer row = rowIndex.get(id);
+        if (row == null) {
+            return -1;
+        }
+        if (row < rowIds.size() && rowIds.get(row) == id) {
+            return row;
+        }
+        //the row moved, positions are caught up from the first row that moved until the id is found
+        while (indexedRows < rowIds.size()) {
+            long rowId = rowIds.get(indexedRows);
+            rowIndex.put(rowId, indexedRows++);
+            if (rowId == id) {
+                return indexedRows - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void clearRows() {
+        rowIds.clear();
+        rowIndex.clear();
+        indexedRows = 0;
+    }
+
+    private void appendRow(long id) {
+        insertRow(rowIds.size(), id);
+    }
+
+    //the rows after it move down, their positions are exact again once looked up
+    private void insertRow(int row, long id) {
+        rowIds.add(row, id);
+        rowIndex.put(id, row);
+        if (row <= indexedRows) {
+            indexedRows = row + 1;
+        }
+    }
+
+    private void removeRow(int row) {
+        rowIndex.remove(rowIds.remove(row));
+        if (row < indexedRows) {
+            indexedRows = row;
+        }
+    }
+
+    //binary search over the visible order, new rows in ADDED order go to the end (or start)
+    private int insertionRow(long id, Assignment data) {
+        if (sortCriteria == AssignmentSortCriteria.ADDED) {
+            return descending ? 0 : rowIds.size();
+        }
+
+        Comparator<Assignment> order = descending ? sortCriteria.comparator().reversed() : sortCriteria.comparator();
+        int low = 0;
+        int high = rowIds.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long rowId = rowIds.get(middle);
+            Optional<Assignment> rowData = manager.getAssignment(rowId);
+            if (rowData.isEmpty()) {
+                //the rows trail the user, another manager removed this one and its change is still on the way
+                dropRemovedRows();
+                return insertionRow(id, data);
+            }
+            int compared = order.compare(rowData.get(), data);
+            if (compared == 0) {
+                compared = descending ? Long.compare(id, rowId) : Long.compare(rowId, id);
+            }
+            if (compared < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //their removal events find nothing left to do
+    private void dropRemovedRows() {
+        for (int row = rowIds.size() - 1; row >= 0; row--) {
+            if (manager.getAssignment(rowIds.get(row)).isEmpty()) {
+                removeRow(row);
+                fireTableRowsDeleted(row, row);
+            }
+        }
+    }
+
+    long getIdAt(final int row) {
+        return rowIds.get(row);
+    }
+
+    Assignment getAssignmentAt(final int row) {
+        return manager.getAssignment(rowIds.get(row)).orElse(null);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowIds.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == COMPLETED_COLUMN ? Boolean.class : Object.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Assignment data = getAssignmentAt(row);
+        if (data == null) {
+            return null;
+        }
+        return switch (column) {
+            case LESSON_COLUMN -> data.lesson().getDisplayName();
+            case DUE_DATE_COLUMN -> data.dueDate();
+            case COMPLETED_COLUMN -> data.completed();
+            case NOTES_COLUMN -> data.notes();
+            case EDIT_COLUMN -> "Edit";
+            case DELETE_COLUMN -> "Delete";
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,358 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Snapshot in a fixed-width binary layout:
+ * <pre>
+ * int magic, int version, int tablesLength, int recordCount
+ * tables:  lesson names by stored ordinal, then per user its record and notes range
+ * records: recordCount * 24 bytes, the rows of one user are consecutive
+ *          long id, int epochDay, int notesOffset, int notesLength, byte lesson, byte flags, 2 bytes reserved
+ * notes:   UTF-8 notes of all records in record order
+ * </pre>
+ * Loading a user is two positional reads (its records and its notes) and one String per row.
+ * Lessons are stored by ordinal, the table of names keeps old files readable when the enum changes.
+ */
+final class BinarySnapshotStore implements SnapshotStore {
+
+    private static final int MAGIC = 0x41534E42; //"ASNB"
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_SIZE = 16;
+
+    private static final int RECORD_SIZE = 24;
+    private static final int ID = 0;
+    private static final int EPOCH_DAY = 8;
+    private static final int NOTES_OFFSET = 12;
+    private static final int NOTES_LENGTH = 16;
+    private static final int LESSON = 20;
+    private static final int FLAGS = 21;
+    private static final byte COMPLETED_FLAG = 1;
+
+    //records patched per read when unchanged users are carried over
+    private static final int COPY_CHUNK_RECORDS = 4096;
+
+    private final Path path;
+    private final LongAdder malformedRows = new LongAdder();
+    private Layout layout;
+
+    BinarySnapshotStore(@NotNull final Path path) {
+        this.path = path;
+    }
+
+    //assignments.csv -> assignments.bin
+    static Path pathFor(@NotNull final Path csvPath) {
+        String name = csvPath.getFileName().toString();
+        return csvPath.resolveSibling((name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name) + ".bin");
+    }
+
+    @Override
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public void readUser(@NotNull final String username, @NotNull final AssignmentCsvReader.RowConsumer consumer,
+                         @NotNull final ReadStatistics statistics) throws IOException {
+        Layout current = layout();
+        UserSpan span = current.users().get(username);
+        if (span == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            decode(channel, current, span, consumer, statistics);
+        }
+    }
+
+    @Override
+    public void readAll(@NotNull final AssignmentCsvReader.UserRowConsumer consumer) throws IOException {
+        Layout current = layout();
+        if (current.users().isEmpty()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (Map.Entry<String, UserSpan> user : current.users().entrySet()) {
+                String username = user.getKey();
+                decode(channel, current, user.getValue(), (id, lesson, epochDay, completed, notes) ->
+                        consumer.accept(username, id, lesson, epochDay, completed, notes), new ReadStatistics());
+            }
+        }
+    }
+
+    /**
+     * Records of unchanged users are copied in chunks with only their notes offsets moved,
+     * their notes are transferred channel to channel without being decoded.
+     */
+    @Override
+    public Replacement prepare(@NotNull final Map<String, ? extends Map<Long, Assignment>> changedUsers,
+                               final boolean keepOtherUsers) throws IOException {
+        Layout old = layout();
+
+        List<String> lessonNames = new ArrayList<>(keepOtherUsers ? Arrays.asList(old.lessonNames()) : List.of());
+        for (Lesson lesson : Lesson.values()) {
+            if (!lessonNames.contains(lesson.name())) {
+                lessonNames.add(lesson.name());
+            }
+        }
+        if (lessonNames.size() > 256) {
+            throw new IOException("Too many lessons for one byte: " + lessonNames.size());
+        }
+
+        //carried over users first, in their old order, then the changed users
+        List<PlannedUser> plan = new ArrayList<>();
+        if (keepOtherUsers) {
+            old.users().forEach((username, span) -> {
+                if (!changedUsers.containsKey(username)) {
+                    plan.add(new PlannedUser(username, span, null, null));
+                }
+            });
+        }
+        for (Map.Entry<String, ? extends Map<Long, Assignment>> user : changedUsers.entrySet()) {
+            if (!user.getValue().isEmpty()) {
+                plan.add(encode(user.getKey(), user.getValue(), lessonNames));
+            }
+        }
+
+        ByteArrayOutputStream tables = new ByteArrayOutputStream();
+        int recordCount = 0;
+        long notesLength = 0;
+        try (DataOutputStream out = new DataOutputStream(tables)) {
+            out.writeShort(lessonNames.size());
+            for (String lessonName : lessonNames) {
+                out.writeUTF(lessonName);
+            }
+            out.writeInt(plan.size());
+            for (PlannedUser user : plan) {
+                out.writeUTF(user.username());
+                out.writeInt(recordCount);
+                out.writeInt(user.recordCount());
+                out.writeInt(Math.toIntExact(notesLength));
+                out.writeInt(user.notesLength());
+                recordCount = Math.addExact(recordCount, user.recordCount());
+                notesLength += user.notesLength();
+            }
+        }
+        if (notesLength > Integer.MAX_VALUE) {
+            throw new IOException("Notes section exceeds 2 GiB");
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             FileChannel in = old.users().isEmpty() ? null : FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_SIZE + tables.size());
+            header.putInt(MAGIC).putInt(VERSION).putInt(tables.size()).putInt(recordCount).put(tables.toByteArray());
+            writeFully(out, header.flip());
+
+            int notesStart = 0;
+            for (PlannedUser user : plan) {
+                if (user.records() != null) {
+                    patchNotesOffsets(user.records(), user.recordCount(), notesStart);
+                    writeFully(out, user.records());
+                } else {
+                    copyRecords(in, out, old, user.carried(), notesStart - user.carried().notesStart());
+                }
+                notesStart += user.notesLength();
+            }
+
+            for (PlannedUser user : plan) {
+                if (user.notes() != null) {
+                    writeFully(out, ByteBuffer.wrap(user.notes()));
+                } else {
+                    long position = old.notesStart() + user.carried().notesStart();
+                    long remaining = user.carried().notesLength();
+                    while (remaining > 0) {
+                        long transferred = in.transferTo(position, remaining, out);
+                        if (transferred <= 0) {
+                            throw new EOFException("Binary snapshot ended inside the notes of " + user.username());
+                        }
+                        position += transferred;
+                        remaining -= transferred;
+                    }
+                }
+            }
+            //forced before the rename, the rotated journal is deleted once it is committed
+            out.force(true);
+        }
+
+        return () -> {
+            synchronized (this) {
+                try {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException _) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                layout = null;
+            }
+        };
+    }
+
+    //records whose lesson is unknown or whose notes lie outside the notes of their user
+    @Override
+    public long malformedRows() {
+        return malformedRows.sum();
+    }
+
+    private void decode(FileChannel channel, Layout current, UserSpan span, AssignmentCsvReader.RowConsumer consumer,
+                        ReadStatistics statistics) throws IOException {
+        ByteBuffer records = readFully(channel, current.recordsStart() + (long) span.firstRecord() * RECORD_SIZE,
+                span.recordCount() * RECORD_SIZE);
+        byte[] notes = readFully(channel, current.notesStart() + span.notesStart(), span.notesLength()).array();
+        statistics.bytesRead += (long) span.recordCount() * RECORD_SIZE + span.notesLength();
+        statistics.rowsScanned += span.recordCount();
+
+        for (int record = 0; record < span.recordCount(); record++) {
+            int base = record * RECORD_SIZE;
+            int lessonIndex = records.get(base + LESSON) & 0xFF;
+            Lesson lesson = lessonIndex < current.lessons().length ? current.lessons()[lessonIndex] : null;
+            int notesOffset = records.getInt(base + NOTES_OFFSET) - span.notesStart();
+            int notesLength = records.getInt(base + NOTES_LENGTH);
+            if (lesson == null || notesOffset < 0 || notesLength < 0 || notesOffset > notes.length - notesLength) {
+                malformedRows.increment();
+                statistics.malformedRows++;
+                continue;
+            }
+            consumer.accept(records.getLong(base + ID), lesson, records.getInt(base + EPOCH_DAY),
+                    (records.get(base + FLAGS) & COMPLETED_FLAG) != 0,
+                    new String(notes, notesOffset, notesLength, StandardCharsets.UTF_8));
+            statistics.rowsMatched++;
+        }
+    }
+
+    //records with notes offsets relative to the user, they are moved when the file is written
+    private static PlannedUser encode(String username, Map<Long, Assignment> rows, List<String> lessonNames) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(Math.multiplyExact(rows.size(), RECORD_SIZE));
+        ByteArrayOutputStream notes = new ByteArrayOutputStream();
+        for (Map.Entry<Long, Assignment> row : rows.entrySet()) {
+            Assignment data = row.getValue();
+            byte[] noteBytes = data.notes().getBytes(StandardCharsets.UTF_8);
+            records.putLong(row.getKey())
+                    .putInt(EpochDays.of(data.dueDate()))
+                    .putInt(notes.size())
+                    .putInt(noteBytes.length)
+                    .put((byte) lessonNames.indexOf(data.lesson().name()))
+                    .put(data.completed() ? COMPLETED_FLAG : 0)
+                    .putShort((short) 0);
+            notes.write(noteBytes);
+        }
+        return new PlannedUser(username, null, records.flip(), notes.toByteArray());
+    }
+
+    private static void copyRecords(FileChannel in, FileChannel out, Layout old, UserSpan span, int notesDelta) throws IOException {
+        long position = old.recordsStart() + (long) span.firstRecord() * RECORD_SIZE;
+        int remaining = span.recordCount();
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, COPY_CHUNK_RECORDS);
+            ByteBuffer records = readFully(in, position, chunk * RECORD_SIZE);
+            patchNotesOffsets(records, chunk, notesDelta);
+            writeFully(out, records);
+            position += (long) chunk * RECORD_SIZE;
+            remaining -= chunk;
+        }
+    }
+
+    private static void patchNotesOffsets(ByteBuffer records, int count, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (int record = 0; record < count; record++) {
+            int at = record * RECORD_SIZE + NOTES_OFFSET;
+            records.putInt(at, records.getInt(at) + delta);
+        }
+    }
+
+    //header of the current file, re-read only when length or modification time changed
+    private synchronized Layout layout() throws IOException {
+        if (!Files.exists(path)) {
+            layout = null;
+            return Layout.EMPTY;
+        }
+        long length = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        if (layout != null && layout.length() == length && layout.lastModified() == lastModified) {
+            return layout;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer fixed = readFully(channel, 0, FIXED_HEADER_SIZE);
+            if (fixed.getInt() != MAGIC || fixed.getInt() != VERSION) {
+                throw new IOException("Not a binary assignments snapshot: " + path);
+            }
+            int tablesLength = fixed.getInt();
+            int recordCount = fixed.getInt();
+
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    readFully(channel, FIXED_HEADER_SIZE, tablesLength).array()))) {
+                String[] lessonNames = new String[in.readUnsignedShort()];
+                Lesson[] lessons = new Lesson[lessonNames.length];
+                for (int i = 0; i < lessonNames.length; i++) {
+                    lessonNames[i] = in.readUTF();
+                    try {
+                        lessons[i] = Lesson.valueOf(lessonNames[i]);
+                    } catch (IllegalArgumentException _) {
+                        //lesson no longer exists, its records are skipped
+                    }
+                }
+
+                int userCount = in.readInt();
+                LinkedHashMap<String, UserSpan> users = LinkedHashMap.newLinkedHashMap(userCount);
+                for (int i = 0; i < userCount; i++) {
+                    users.put(in.readUTF(), new UserSpan(in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+                }
+                layout = new Layout(length, lastModified, lessonNames, lessons, users, recordCount,
+                        FIXED_HEADER_SIZE + tablesLength);
+                return layout;
+            }
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Binary snapshot is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private record Layout(long length, long lastModified, String[] lessonNames, Lesson[] lessons,
+                          LinkedHashMap<String, UserSpan> users, int recordCount, long recordsStart) {
+        static final Layout EMPTY = new Layout(0, 0, new String[0], new Lesson[0], new LinkedHashMap<>(), 0, FIXED_HEADER_SIZE);
+
+        long notesStart() {
+            return recordsStart + (long) recordCount * RECORD_SIZE;
+        }
+    }
+
+    //notesStart is relative to the notes section
+    private record UserSpan(int firstRecord, int recordCount, int notesStart, int notesLength) {}
+
+    //either carried over from the old file or freshly encoded records and notes
+    private record PlannedUser(String username, UserSpan carried, ByteBuffer records, byte[] notes) {
+        int recordCount() {
+            return carried != null ? carried.recordCount() : records.remaining() / RECORD_SIZE;
+        }
+
+        int notesLength() {
+            return carried != null ? carried.notesLength() : notes.length;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects the changes of one {@link UserAssignments} and delivers them to its listeners on the EDT.
+ * A delivery is scheduled with the first change after the last one, so every change made before
+ * the EDT runs it is coalesced into the same {@link AssignmentChanges}. Without listeners nothing
+ * is recorded.
+ */
+final class ChangeBatcher {
+
+    private final List<AssignmentChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    //guarded by this
+    private final Set<Long> added = new LinkedHashSet<>();
+    private final Set<Long> updated = new LinkedHashSet<>();
+    private final Set<Long> removed = new LinkedHashSet<>();
+    private boolean reloaded;
+    private boolean scheduled;
+
+    void addListener(@NotNull final AssignmentChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(@NotNull final AssignmentChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    synchronized void added(final long id) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        //removed and added again within the batch, e.g. by a reload
+        if (removed.remove(id)) {
+            updated.add(id);
+        } else {
+            added.add(id);
+        }
+        schedule();
+    }
+
+    synchronized void updated(final long id) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (!added.contains(id)) {
+            updated.add(id);
+        }
+        schedule();
+    }
+
+    synchronized void removed(final long id) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (!added.remove(id)) {
+            updated.remove(id);
+            removed.add(id);
+        }
+        schedule();
+    }
+
+    synchronized void reloaded() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        added.clear();
+        updated.clear();
+        removed.clear();
+        reloaded = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            SwingUtilities.invokeLater(this::deliver);
+        }
+    }
+
+    private boolean hasChanges() {
+        return reloaded || !added.isEmpty() || !updated.isEmpty() || !removed.isEmpty();
+    }
+
+    private void deliver() {
+        AssignmentChanges changes;
+        synchronized (this) {
+            scheduled = false;
+            if (!hasChanges()) {
+                return;
+            }
+            changes = new AssignmentChanges(added, updated, removed, reloaded);
+            added.clear();
+            updated.clear();
+            removed.clear();
+            reloaded = false;
+        }
+        listeners.forEach(listener -> listener.assignmentsChanged(changes));
+    }
+}
@@ -0,0 +1,464 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The assignments of one user as primitive columns instead of one record per row: epoch days in an
+ * {@code int[]}, lesson ordinals in a {@code byte[]}, the completed flags in a {@link BitSet} and the
+ * notes as references into a pool that stores every distinct text once. {@link Assignment}s are
+ * created on access and not kept, so a row costs about 40 bytes plus its share of the pool.
+ * <p>
+ * Rows stay in the order they were added. Removed rows are only marked and dropped in one go once
+ * they make up half of the columns. Due dates are kept as days, like in the csv, so an assignment
+ * read back is at midnight of its due day.
+ */
+final class ColumnarAssignments extends AbstractMap<Long, Assignment> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_COMPACT_ROWS = 64;
+    private static final Lesson[] LESSONS = Lesson.values();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private byte[] lessons = new byte[INITIAL_CAPACITY];
+    private int[] notes = new int[INITIAL_CAPACITY];
+    private final BitSet completed = new BitSet();
+    private final BitSet removed = new BitSet();
+
+    //rows in the columns, removed ones included
+    private int rows;
+    private int size;
+    //changed on every change, invalidates the sorted orders
+    private int modCount;
+
+    private final RowIndex rowById = new RowIndex();
+    private final NotesPool notesPool = new NotesPool();
+    private final Map<AssignmentSortCriteria, int[]> sortedRows = new EnumMap<>(AssignmentSortCriteria.class);
+    private int sortedModCount;
+
+    @Override
+    public Assignment get(final Object key) {
+        if (!(key instanceof Long id)) {
+            return null;
+        }
+        int row = rowById.get(id);
+        return row < 0 ? null : view(row);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof Long id && rowById.get(id) >= 0;
+    }
+
+    //updates in place, new ids are appended
+    @Override
+    public Assignment put(@NotNull final Long id, @NotNull final Assignment data) {
+        int row = rowById.get(id);
+        if (row >= 0) {
+            Assignment oldData = view(row);
+            int oldNotes = notes[row];
+            set(row, data);
+            notesPool.release(oldNotes);
+            modCount++;
+            return oldData;
+        }
+
+        if (rows == ids.length) {
+            grow();
+        }
+        row = rows++;
+        ids[row] = id;
+        set(row, data);
+        rowById.put(id, row);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public Assignment remove(final Object key) {
+        if (!(key instanceof Long id)) {
+            return null;
+        }
+        int row = rowById.remove(id);
+        if (row < 0) {
+            return null;
+        }
+        Assignment data = view(row);
+        notesPool.release(notes[row]);
+        removed.set(row);
+        size--;
+        modCount++;
+        if (rows >= MIN_COMPACT_ROWS && size < rows / 2) {
+            compact();
+        }
+        return data;
+    }
+
+    @Override
+    public void clear() {
+        ids = new long[INITIAL_CAPACITY];
+        epochDays = new int[INITIAL_CAPACITY];
+        lessons = new byte[INITIAL_CAPACITY];
+        notes = new int[INITIAL_CAPACITY];
+        completed.clear();
+        removed.clear();
+        rows = 0;
+        size = 0;
+        rowById.clear();
+        notesPool.clear();
+        sortedRows.clear();
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public @NotNull Set<Entry<Long, Assignment>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<Long, Assignment>> iterator() {
+                Iterator<Long> keys = ids(false).iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Long, Assignment> next() {
+                        long id = keys.next();
+                        return new SimpleImmutableEntry<>(id, view(rowById.get(id)));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Ids in the order they were added.
+     */
+    Iterable<Long> ids(final boolean descending) {
+        return () -> new Iterator<>() {
+            private int row = next(descending ? rows - 1 : 0);
+
+            private int next(int from) {
+                return descending ? removed.previousClearBit(from) : removed.nextClearBit(from);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return row >= 0 && row < rows;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long id = ids[row];
+                row = next(descending ? row - 1 : row + 1);
+                return id;
+            }
+        };
+    }
+
+    /**
+     * Ids in the given order. The columns are sorted as primitive keys on the first request after a
+     * change and the order is kept until the next one; equal rows stay in the order they were added.
+     */
+    Iterable<Long> ids(@NotNull final AssignmentSortCriteria criteria, final boolean descending) {
+        if (criteria == AssignmentSortCriteria.ADDED) {
+            return ids(descending);
+        }
+        int[] order;
+        //readers holding the read lock share the cached orders
+        synchronized (sortedRows) {
+            if (sortedModCount != modCount) {
+                sortedRows.clear();
+                sortedModCount = modCount;
+            }
+            order = sortedRows.computeIfAbsent(criteria, this::sort);
+        }
+        return () -> new Iterator<>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < order.length;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int position = i++;
+                return ids[order[descending ? order.length - 1 - position : position]];
+            }
+        };
+    }
+
+    //bytes of the columns and the pool, for the cache's size estimate
+    long estimatedBytes() {
+        return ids.length * (8L + 4 + 1 + 4) + completed.size() / 8 + removed.size() / 8
+                + rowById.estimatedBytes() + notesPool.estimatedBytes();
+    }
+
+    private Assignment view(int row) {
+        return new Assignment(LESSONS[lessons[row]], EpochDays.toDate(epochDays[row]), completed.get(row),
+                notesPool.get(notes[row]));
+    }
+
+    private void set(int row, Assignment data) {
+        epochDays[row] = EpochDays.of(data.dueDate());
+        lessons[row] = (byte) data.lesson().ordinal();
+        completed.set(row, data.completed());
+        notes[row] = notesPool.acquire(data.notes());
+    }
+
+    /*
+    Sort key: the criteria's value in the upper 32 bits, the row in the lower ones, so one sort of a
+    long[] gives the order and keeps equal rows in row order.
+     */
+    private int[] sort(AssignmentSortCriteria criteria) {
+        int[] lessonRanks = lessonRanks();
+        int[] noteRanks = criteria == AssignmentSortCriteria.NOTES ? notesPool.ranks() : null;
+        long[] keys = new long[size];
+        int k = 0;
+        for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+            int value = switch (criteria) {
+                case DUE_DATE -> epochDays[row] ^ Integer.MIN_VALUE; //signed to unsigned order
+                case LESSON -> lessonRanks[lessons[row]];
+                case COMPLETED -> completed.get(row) ? 1 : 0;
+                case NOTES -> noteRanks[notes[row]];
+                case ADDED -> throw new IllegalArgumentException("No sort key for " + criteria);
+            };
+            keys[k++] = (Integer.toUnsignedLong(value) << 32) | row;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    //lessons are shown and sorted by display name
+    private static int[] lessonRanks() {
+        Lesson[] byName = LESSONS.clone();
+        Arrays.sort(byName, Comparator.comparing(Lesson::getDisplayName));
+        int[] ranks = new int[LESSONS.length];
+        for (int rank = 0; rank < byName.length; rank++) {
+            ranks[byName[rank].ordinal()] = rank;
+        }
+        return ranks;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        lessons = Arrays.copyOf(lessons, capacity);
+        notes = Arrays.copyOf(notes, capacity);
+    }
+
+    //moves the remaining rows together, keeping their order
+    private void compact() {
+        int to = 0;
+        for (int from = removed.nextClearBit(0); from < rows; from = removed.nextClearBit(from + 1)) {
+            ids[to] = ids[from];
+            epochDays[to] = epochDays[from];
+            lessons[to] = lessons[from];
+            notes[to] = notes[from];
+            completed.set(to, completed.get(from));
+            rowById.put(ids[to], to);
+            to++;
+        }
+        completed.clear(to, rows);
+        removed.clear();
+        rows = to;
+    }
+
+    /**
+     * Id to row, open addressing with linear probing so no {@code Long} or {@code Integer} is boxed.
+     */
+    private static final class RowIndex {
+        private static final int EMPTY = -1;
+
+        private long[] keys = new long[INITIAL_CAPACITY * 2];
+        private int[] values = newValues(INITIAL_CAPACITY * 2);
+        private int size;
+
+        int get(long id) {
+            for (int slot = slot(id); ; slot = (slot + 1) & (keys.length - 1)) {
+                if (values[slot] == EMPTY) {
+                    return EMPTY;
+                }
+                if (keys[slot] == id) {
+                    return values[slot];
+                }
+            }
+        }
+
+        void put(long id, int row) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int slot = slot(id);
+            while (values[slot] != EMPTY && keys[slot] != id) {
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            if (values[slot] == EMPTY) {
+                size++;
+            }
+            keys[slot] = id;
+            values[slot] = row;
+        }
+
+        //the row of the id or EMPTY, later entries of the probe chain are shifted back into the gap
+        int remove(long id) {
+            int mask = keys.length - 1;
+            int slot = slot(id);
+            while (values[slot] != EMPTY && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            int row = values[slot];
+            if (row == EMPTY) {
+                return EMPTY;
+            }
+            size--;
+
+            int gap = slot;
+            for (int next = (gap + 1) & mask; values[next] != EMPTY; next = (next + 1) & mask) {
+                int home = slot(keys[next]);
+                //move the entry if its home is not between the gap and its slot
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            values[gap] = EMPTY;
+            return row;
+        }
+
+        void clear() {
+            keys = new long[INITIAL_CAPACITY * 2];
+            values = newValues(INITIAL_CAPACITY * 2);
+            size = 0;
+        }
+
+        long estimatedBytes() {
+            return keys.length * (8L + 4);
+        }
+
+        private int slot(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & (keys.length - 1);
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = newValues(capacity);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int[] newValues(int capacity) {
+            int[] values = new int[capacity];
+            Arrays.fill(values, EMPTY);
+            return values;
+        }
+    }
+
+    /**
+     * Distinct notes with a reference count each, freed slots are reused.
+     */
+    private static final class NotesPool {
+        private String[] strings = new String[INITIAL_CAPACITY];
+        private int[] references = new int[INITIAL_CAPACITY];
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final ArrayDeque<Integer> free = new ArrayDeque<>();
+        private int used;
+        private long characters;
+
+        int acquire(String text) {
+            Integer slot = slots.get(text);
+            if (slot == null) {
+                slot = free.isEmpty() ? used++ : free.pop();
+                if (slot == strings.length) {
+                    strings = Arrays.copyOf(strings, slot * 2);
+                    references = Arrays.copyOf(references, slot * 2);
+                }
+                strings[slot] = text;
+                slots.put(text, slot);
+                characters += text.length();
+            }
+            references[slot]++;
+            return slot;
+        }
+
+        void release(int slot) {
+            if (--references[slot] == 0) {
+                slots.remove(strings[slot]);
+                characters -= strings[slot].length();
+                strings[slot] = null;
+                free.push(slot);
+            }
+        }
+
+        String get(int slot) {
+            return strings[slot];
+        }
+
+        //slot -> position of its text in case-insensitive order
+        int[] ranks() {
+            Integer[] bySlot = slots.values().toArray(Integer[]::new);
+            Arrays.sort(bySlot, Comparator.comparing(slot -> strings[slot], String.CASE_INSENSITIVE_ORDER));
+            int[] ranks = new int[used];
+            int rank = 0;
+            for (int i = 0; i < bySlot.length; i++) {
+                //texts equal ignoring case share a rank
+                if (i > 0 && String.CASE_INSENSITIVE_ORDER.compare(strings[bySlot[i - 1]], strings[bySlot[i]]) != 0) {
+                    rank++;
+                }
+                ranks[bySlot[i]] = rank;
+            }
+            return ranks;
+        }
+
+        void clear() {
+            strings = new String[INITIAL_CAPACITY];
+            references = new int[INITIAL_CAPACITY];
+            slots.clear();
+            free.clear();
+            used = 0;
+            characters = 0;
+        }
+
+        //text, array slots and the map entry per distinct note
+        long estimatedBytes() {
+            return 2 * characters + slots.size() * 96L + strings.length * 8L;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * The universal csv as snapshot, one {@code username,id,lesson,date,completed,notes} row per
+ * assignment. Logins read their rows through the {@link UserOffsetIndex}.
+ */
+final class CsvSnapshotStore implements SnapshotStore {
+
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    private static final long MAX_CHUNK_BYTES = 16 << 20;
+
+    private final Path csvPath;
+    private final UserOffsetIndex offsetIndex;
+    private final AssignmentCsvReader csvReader;
+
+    CsvSnapshotStore(@NotNull final Path csvPath, @NotNull final AssignmentCsvReader csvReader) {
+        this.csvPath = csvPath;
+        this.offsetIndex = new UserOffsetIndex(csvPath);
+        this.csvReader = csvReader;
+    }
+
+    @Override
+    public Path path() {
+        return csvPath;
+    }
+
+    @Override
+    public void readUser(@NotNull final String username, @NotNull final AssignmentCsvReader.RowConsumer consumer,
+                         @NotNull final ReadStatistics statistics) throws IOException {
+        csvReader.read(offsetIndex.readRows(username, statistics), username, consumer, statistics);
+    }
+
+    @Override
+    public void readAll(@NotNull final AssignmentCsvReader.UserRowConsumer consumer) throws IOException {
+        if (!Files.exists(csvPath)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
+            csvReader.readAll(reader, consumer);
+        }
+    }
+
+    /**
+     * Splits the csv into byte ranges that start and end on line boundaries and reads them on the
+     * common fork/join pool, one accumulator per range. Cutting at {@code '\n'} bytes is safe in
+     * UTF-8, no other character contains that byte.
+     */
+    @Override
+    public <A extends RowAccumulator<A>> A aggregate(@NotNull final Supplier<A> accumulators,
+                                                     @NotNull final RowFilter filter) throws IOException {
+        if (!Files.exists(csvPath)) {
+            return accumulators.get();
+        }
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            List<long[]> chunks = chunks(channel);
+            return chunks.parallelStream()
+                    .map(chunk -> {
+                        A accumulator = accumulators.get();
+                        try {
+                            csvReader.readAll(readChunk(channel, chunk[0], chunk[1]), SnapshotStore.filtered(accumulator, filter));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return accumulator;
+                    })
+                    .reduce((left, right) -> left.merge(right))
+                    .orElseGet(accumulators);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    //{start, end} per chunk, the header is left out
+    private static List<long[]> chunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long target = Math.clamp(size / (4L * ForkJoinPool.getCommonPoolParallelism()), MIN_CHUNK_BYTES, MAX_CHUNK_BYTES);
+
+        List<long[]> chunks = new ArrayList<>();
+        long start = startsWithHeader(channel) ? lineEnd(channel, 0) : 0;
+        while (start < size) {
+            long end = start + target >= size ? size : lineEnd(channel, start + target);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    //the position after the next newline at or behind position, or the file size
+    private static long lineEnd(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    //the same check the csv reader does on the first line
+    private static boolean startsWithHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        channel.read(buffer, 0);
+        String start = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        int comma = start.indexOf(',');
+        return comma >= 0 && start.substring(0, comma).trim().equalsIgnoreCase("username");
+    }
+
+    private static CharBuffer readChunk(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+        long position = start;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer);
+    }
+
+    /**
+     * Rows of unchanged users are spliced from the old csv with {@code transferTo}, byte range by byte
+     * range from the {@link UserOffsetIndex}, without being decoded. The new rows of a changed user
+     * take the place of its first old row, users that had no rows yet are appended.
+     */
+    @Override
+    public Replacement prepare(@NotNull final Map<String, ? extends Map<Long, Assignment>> changedUsers,
+                               final boolean keepOtherUsers) throws IOException {
+        Path temp = csvPath.resolveSibling(csvPath.getFileName() + ".tmp");
+        UserOffsetIndex.Builder index = new UserOffsetIndex.Builder();
+        Set<String> written = new HashSet<>();
+        try (SnapshotWriter writer = new SnapshotWriter(temp, index)) {
+            if (keepOtherUsers && Files.exists(csvPath)) {
+                List<UserOffsetIndex.Range> ranges = offsetIndex.rangesInFileOrder();
+                try (FileChannel old = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+                    long oldLength = old.size();
+                    for (UserOffsetIndex.Range range : ranges) {
+                        Map<Long, Assignment> rows = changedUsers.get(range.username());
+                        if (rows == null) {
+                            writer.transfer(old, range, range.offset() + range.length() == oldLength);
+                        } else if (written.add(range.username())) {
+                            writer.writeRows(range.username(), rows);
+                        }
+                    }
+                }
+            }
+
+            for (Map.Entry<String, ? extends Map<Long, Assignment>> user : changedUsers.entrySet()) {
+                if (written.add(user.getKey())) {
+                    writer.writeRows(user.getKey(), user.getValue());
+                }
+            }
+        }
+
+        return () -> {
+            try {
+                Files.move(temp, csvPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException _) {
+                Files.move(temp, csvPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            offsetIndex.publish(index);
+        };
+    }
+
+    //counted by the shared AssignmentCsvReader
+    @Override
+    public long malformedRows() {
+        return 0;
+    }
+
+    /**
+     * Writes the new csv through one channel and records row positions for the {@link UserOffsetIndex}.
+     * Encoded rows are buffered, spliced ranges go straight from channel to channel.
+     */
+    private static final class SnapshotWriter implements Closeable {
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final FileChannel out;
+        private final UserOffsetIndex.Builder index;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long offset;
+
+        SnapshotWriter(Path file, UserOffsetIndex.Builder index) throws IOException {
+            this.out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            this.index = index;
+            write((AssignmentPersistence.HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeRows(String username, Map<Long, Assignment> rows) throws IOException {
+            for (Map.Entry<Long, Assignment> row : rows.entrySet()) {
+                long rowOffset = offset;
+                write((username + "," + row.getKey() + "," + row.getValue().toCSVLine() + "\n").getBytes(StandardCharsets.UTF_8));
+                index.addRow(username, rowOffset, offset - rowOffset);
+            }
+        }
+
+        //the last row of the old file may lack its newline, it gets one so appended rows stay separate
+        void transfer(FileChannel from, UserOffsetIndex.Range range, boolean endOfFile) throws IOException {
+            flushBuffer();
+            long position = range.offset();
+            long remaining = range.length();
+            while (remaining > 0) {
+                long transferred = from.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    throw new EOFException("Csv ended inside the rows of " + range.username());
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            long rangeOffset = offset;
+            offset += range.length();
+            if (endOfFile && !endsWithNewline(from, range)) {
+                write(new byte[]{'\n'});
+            }
+            index.addRow(range.username(), rangeOffset, offset - rangeOffset);
+        }
+
+        private static boolean endsWithNewline(FileChannel from, UserOffsetIndex.Range range) throws IOException {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            from.read(last, range.offset() + range.length() - 1);
+            return last.get(0) == '\n';
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.remaining()) {
+                flushBuffer();
+            }
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+            offset += bytes.length;
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        }
+
+        //forced before the rename, so the renamed file is complete even after a crash
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                flushBuffer();
+                out.force(true);
+            }
+        }
+    }
+}
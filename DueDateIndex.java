@@ -0,0 +1,90 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.LongPredicate;
+
+/**
+ * Ids bucketed by due day, so "due between" and "overdue" only visit the days asked for instead of
+ * every assignment. A bucket is a plain {@code long[]}, days rarely hold more than a handful of
+ * assignments, so removing from one is a short scan.
+ */
+final class DueDateIndex implements AssignmentIndex {
+
+    private static final class Bucket {
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        //keeps the order the ids were added in
+        boolean remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final TreeMap<Integer, Bucket> buckets = new TreeMap<>();
+
+    @Override
+    public void added(final long id, @NotNull final Assignment data) {
+        buckets.computeIfAbsent(EpochDays.of(data.dueDate()), _ -> new Bucket()).add(id);
+    }
+
+    @Override
+    public void updated(final long id, @NotNull final Assignment oldData, @NotNull final Assignment newData) {
+        int oldDay = EpochDays.of(oldData.dueDate());
+        int newDay = EpochDays.of(newData.dueDate());
+        if (oldDay != newDay) {
+            remove(oldDay, id);
+            added(id, newData);
+        }
+    }
+
+    @Override
+    public void removed(final long id, @NotNull final Assignment data) {
+        remove(EpochDays.of(data.dueDate()), id);
+    }
+
+    @Override
+    public void cleared() {
+        buckets.clear();
+    }
+
+    /**
+     * Visits the ids due from {@code fromDay} to {@code toDay} (both inclusive) in due order, ids due
+     * on the same day in the order they were added. Stops as soon as the visitor returns false.
+     */
+    void visit(final int fromDay, final int toDay, @NotNull final LongPredicate visitor) {
+        if (fromDay > toDay) {
+            return;
+        }
+        for (Bucket bucket : buckets.subMap(fromDay, true, toDay, true).values()) {
+            for (int i = 0; i < bucket.size; i++) {
+                if (!visitor.test(bucket.ids[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void remove(int day, long id) {
+        Bucket bucket = buckets.get(day);
+        if (bucket != null && bucket.remove(id) && bucket.size == 0) {
+            buckets.remove(day);
+        }
+    }
+}
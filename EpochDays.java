@@ -0,0 +1,38 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Conversions between due dates and days since 1970-01-01. Dates are interpreted in the system
+ * time zone, the same way {@code SimpleDateFormat} parses them from the csv.
+ */
+final class EpochDays {
+
+    private EpochDays() {}
+
+    static int of(@NotNull final Date date) {
+        return Math.toIntExact(Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+    }
+
+    static int of(@NotNull final LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    //midnight of that day
+    static Date toDate(final int epochDay) {
+        return new Date(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    static LocalDate toLocalDate(final int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    static int today() {
+        return of(LocalDate.now());
+    }
+}
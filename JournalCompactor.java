@@ -0,0 +1,64 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs {@link AssignmentPersistence#compact()} on a background thread once the journal grows past
+ * a record or byte threshold. Thresholds can be set with the system properties
+ * {@code assignments.journal.maxRecords} and {@code assignments.journal.maxBytes}.
+ */
+final class JournalCompactor {
+
+    static final int DEFAULT_MAX_RECORDS = 500;
+    static final long DEFAULT_MAX_BYTES = 256 * 1024;
+
+    private final AssignmentPersistence persistence;
+    private final long maxRecords;
+    private final long maxBytes;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "assignment-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    JournalCompactor(@NotNull final AssignmentPersistence persistence) {
+        this(persistence,
+                Long.getLong("assignments.journal.maxRecords", DEFAULT_MAX_RECORDS),
+                Long.getLong("assignments.journal.maxBytes", DEFAULT_MAX_BYTES));
+    }
+
+    JournalCompactor(@NotNull final AssignmentPersistence persistence, final long maxRecords, final long maxBytes) {
+        this.persistence = persistence;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    void maybeCompact(final long journalRecords, final long journalBytes) {
+        if (journalRecords < maxRecords && journalBytes < maxBytes) {
+            return;
+        }
+        //at most one compaction queued or running at a time
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                persistence.compact();
+            } catch (IOException | RuntimeException e) {
+                //the rotated journal is kept, the next run compacts it again
+                AssignmentMetrics.counter("compaction.failures").increment();
+            } finally {
+                scheduled.set(false);
+            }
+            //appends that arrived while compacting may already need the next run
+            maybeCompact(persistence.journalRecords(), persistence.journalBytes());
+        });
+    }
+}
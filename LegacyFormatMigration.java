@@ -0,0 +1,171 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * One time upgrade of files written before assignments had ids: the csv had no id column and the
+ * v1 journal addressed rows by their list index. Everything is folded into a csv with ids
+ * (numbered 1..n per user in file order) and the old journals are removed. Rows that cannot be
+ * read are skipped and counted as {@code migration.skippedRows}. Runs under the
+ * {@link AssignmentFileLock}, so only one process migrates.
+ */
+final class LegacyFormatMigration {
+
+    private LegacyFormatMigration() {}
+
+    static void migrateIfNeeded(@NotNull final Path csvPath) throws IOException {
+        Path journal = AssignmentJournal.pathFor(csvPath);
+        Path rotated = AssignmentJournal.rotatedPathFor(csvPath);
+        if (!isLegacyCsv(csvPath) && !isLegacyJournal(journal) && !isLegacyJournal(rotated)) {
+            return;
+        }
+
+        Map<String, List<Assignment>> users = readLegacyCsv(csvPath);
+        replayLegacyJournal(rotated, users);
+        replayLegacyJournal(journal, users);
+
+        Path temp = csvPath.resolveSibling(csvPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            writer.write(AssignmentPersistence.HEADER);
+            writer.write('\n');
+            for (Map.Entry<String, List<Assignment>> user : users.entrySet()) {
+                long id = 1;
+                for (Assignment data : user.getValue()) {
+                    writer.write(user.getKey() + "," + id++ + "," + data.toCSVLine());
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            //forced before the rename, the old csv is the only other copy of every user
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, csvPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(temp, csvPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(rotated);
+        Files.deleteIfExists(journal);
+    }
+
+    private static boolean isLegacyCsv(Path csvPath) throws IOException {
+        if (!Files.exists(csvPath) || Files.size(csvPath) == 0) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            return header == null || !header.trim().equalsIgnoreCase(AssignmentPersistence.HEADER);
+        }
+    }
+
+    private static boolean isLegacyJournal(Path journal) throws IOException {
+        if (!Files.exists(journal)) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            return AssignmentJournal.LEGACY_HEADER.equals(reader.readLine());
+        }
+    }
+
+    //username,lesson,date,completed,notes
+    private static Map<String, List<Assignment>> readLegacyCsv(Path csvPath) throws IOException {
+        Map<String, List<Assignment>> users = new LinkedHashMap<>();
+        if (!Files.exists(csvPath)) {
+            return users;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
+            String line;
+            boolean firstLine = true;
+            while ((line = reader.readLine()) != null) {
+                //skip header
+                if (firstLine && line.trim().toLowerCase().startsWith("username,")) {
+                    firstLine = false;
+                    continue;
+                }
+                firstLine = false;
+
+                String[] parts = line.split(",", 2);
+                if (parts.length < 2) {
+                    skipped();
+                    continue;
+                }
+                Assignment data = parse(parts[1]);
+                if (data != null) {
+                    users.computeIfAbsent(parts[0], _ -> new ArrayList<>()).add(data);
+                }
+            }
+        }
+        return users;
+    }
+
+    //A,username,payload / U,username,index,payload / D,username,index
+    private static void replayLegacyJournal(Path journal, Map<String, List<Assignment>> users) throws IOException {
+        if (!isLegacyJournal(journal)) {
+            return;
+        }
+        for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",", line.startsWith("U,") ? 4 : 3);
+            if (parts.length < 3) {
+                skipped();
+                continue;
+            }
+
+            List<Assignment> rows = users.computeIfAbsent(parts[1], _ -> new ArrayList<>());
+            try {
+                switch (parts[0]) {
+                    case "A" -> {
+                        Assignment data = parse(parts[2]);
+                        if (data != null) {
+                            rows.add(data);
+                        }
+                    }
+                    case "U" -> {
+                        int index = Integer.parseInt(parts[2]);
+                        Assignment data = parts.length < 4 ? null : parse(parts[3]);
+                        if (data != null && index >= 0 && index < rows.size()) {
+                            rows.set(index, data);
+                        }
+                    }
+                    case "D" -> {
+                        int index = Integer.parseInt(parts[2]);
+                        if (index >= 0 && index < rows.size()) {
+                            rows.remove(index);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            } catch (NumberFormatException ex) {
+                skipped();
+            }
+        }
+    }
+
+    private static Assignment parse(String payload) {
+        try {
+            Assignment data = Assignment.fromCSVLine(payload);
+            return AssignmentManager.isValid(data) ? data : null;
+        } catch (ParseException | IllegalArgumentException ex) {
+            skipped();
+            return null;
+        }
+    }
+
+    private static void skipped() {
+        AssignmentMetrics.counter("migration.skippedRows").increment();
+    }
+}
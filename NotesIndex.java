@@ -0,0 +1,303 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Inverted index over the words of the notes: every lower-cased word maps to the ids whose notes
+ * contain it and how often. Words are kept sorted, so the last word of a query is matched as a
+ * prefix while it is still being typed. Results are ranked by how rare the matched words are
+ * (idf) and how often they occur in the notes, a word completed from a prefix counts less the more
+ * letters are still missing.
+ */
+final class NotesIndex implements AssignmentIndex {
+
+    //shorter prefixes match too many words to be useful, they only match whole words
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_WORDS = 256;
+
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private int[] counts = new int[2];
+        private int size;
+
+        void add(long id, int count) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            ids[size] = id;
+            counts[size] = count;
+            size++;
+        }
+
+        //order does not matter, the last posting fills the gap
+        void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    counts[i] = counts[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Score per id without boxing: open addressing sized for the expected ids, filled once per query.
+     */
+    private static final class Scores {
+        private final long[] ids;
+        private final double[] scores;
+        private final boolean[] used;
+        private int size;
+
+        Scores(long expected) {
+            int capacity = Integer.highestOneBit((int) Math.min(Math.max(expected, 4), 1 << 29) * 2 - 1) * 2;
+            ids = new long[capacity];
+            scores = new double[capacity];
+            used = new boolean[capacity];
+        }
+
+        //previous is the score the id starts with when it is new
+        void add(long id, double previous, double score) {
+            int slot = home(id);
+            while (used[slot] && ids[slot] != id) {
+                slot = (slot + 1) & (ids.length - 1);
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                ids[slot] = id;
+                scores[slot] = previous;
+                size++;
+            }
+            scores[slot] += score;
+        }
+
+        int slot(long id) {
+            for (int slot = home(id); used[slot]; slot = (slot + 1) & (ids.length - 1)) {
+                if (ids[slot] == id) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        //highest scores first, equal scores by id; the weakest of the best is kept on top of a heap
+        List<Long> best(int limit) {
+            int[] heap = new int[Math.min(limit, size)];
+            int heapSize = 0;
+            for (int slot = 0; slot < ids.length; slot++) {
+                if (!used[slot]) {
+                    continue;
+                }
+                if (heapSize < heap.length) {
+                    heap[heapSize] = slot;
+                    siftUp(heap, heapSize++);
+                } else if (better(slot, heap[0])) {
+                    heap[0] = slot;
+                    siftDown(heap, heapSize);
+                }
+            }
+
+            Long[] best = new Long[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                best[i] = ids[heap[0]];
+                heap[0] = heap[i];
+                siftDown(heap, i);
+            }
+            return List.of(best);
+        }
+
+        private boolean better(int slot, int other) {
+            return scores[slot] != scores[other] ? scores[slot] > scores[other] : ids[slot] < ids[other];
+        }
+
+        private void siftUp(int[] heap, int i) {
+            while (i > 0 && better(heap[(i - 1) / 2], heap[i])) {
+                swap(heap, i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        private void siftDown(int[] heap, int size) {
+            for (int i = 0; ; ) {
+                int weakest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (better(heap[weakest], heap[child])) {
+                        weakest = child;
+                    }
+                }
+                if (weakest == i) {
+                    return;
+                }
+                swap(heap, i, weakest);
+                i = weakest;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int t = heap[a];
+            heap[a] = heap[b];
+            heap[b] = t;
+        }
+
+        private int home(long id) {
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (ids.length - 1);
+        }
+    }
+
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private int documents;
+
+    @Override
+    public void added(final long id, @NotNull final Assignment data) {
+        wordCounts(data.notes()).forEach((word, count) -> words.computeIfAbsent(word, _ -> new Postings()).add(id, count));
+        documents++;
+    }
+
+    @Override
+    public void updated(final long id, @NotNull final Assignment oldData, @NotNull final Assignment newData) {
+        if (!oldData.notes().equals(newData.notes())) {
+            removed(id, oldData);
+            added(id, newData);
+        }
+    }
+
+    @Override
+    public void removed(final long id, @NotNull final Assignment data) {
+        for (String word : wordCounts(data.notes()).keySet()) {
+            Postings postings = words.get(word);
+            if (postings != null) {
+                postings.remove(id);
+                if (postings.size == 0) {
+                    words.remove(word);
+                }
+            }
+        }
+        documents--;
+    }
+
+    @Override
+    public void cleared() {
+        words.clear();
+        documents = 0;
+    }
+
+    /**
+     * Ids whose notes contain every word of the query, the best matches first, at most {@code limit}.
+     * Unless the query ends with a separator, its last word also matches longer words.
+     */
+    List<Long> search(@NotNull final String query, final int limit) {
+        List<String> queryWords = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryWords.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        boolean typing = Character.isLetterOrDigit(query.codePointBefore(query.length()));
+
+        //per query word the index words it matches, the rarest query word first
+        List<Map<String, Postings>> matches = new ArrayList<>();
+        for (int i = 0; i < queryWords.size(); i++) {
+            String word = queryWords.get(i);
+            Map<String, Postings> matched = typing && i == queryWords.size() - 1 && word.length() >= MIN_PREFIX_LENGTH
+                    ? prefixMatches(word)
+                    : exactMatch(word);
+            if (matched.isEmpty()) {
+                return List.of();
+            }
+            matches.add(matched);
+        }
+        matches.sort(Comparator.comparingLong(NotesIndex::postingCount));
+
+        //candidates come from the rarest word, the others only add to their score
+        Scores scores = new Scores(postingCount(matches.getFirst()));
+        score(matches.getFirst(), queryWords, scores, null);
+        for (Map<String, Postings> matched : matches.subList(1, matches.size())) {
+            Scores next = new Scores(scores.size);
+            score(matched, queryWords, next, scores);
+            scores = next;
+            if (scores.size == 0) {
+                return List.of();
+            }
+        }
+        return scores.best(limit);
+    }
+
+    //adds the score of every posting, with candidates only for the ids among them
+    private void score(Map<String, Postings> matched, List<String> queryWords, Scores scores, Scores candidates) {
+        matched.forEach((word, postings) -> {
+            double weight = Math.log(1 + (double) documents / postings.size) * completion(word, queryWords);
+            for (int i = 0; i < postings.size; i++) {
+                long id = postings.ids[i];
+                double previous = 0;
+                if (candidates != null) {
+                    int slot = candidates.slot(id);
+                    if (slot < 0) {
+                        continue;
+                    }
+                    previous = candidates.scores[slot];
+                }
+                scores.add(id, previous, weight * postings.counts[i] / (postings.counts[i] + 1.0));
+            }
+        });
+    }
+
+    //1 for a whole word, less for a word completed from a short prefix
+    private static double completion(String word, List<String> queryWords) {
+        String typed = queryWords.getLast();
+        return word.startsWith(typed) && !queryWords.contains(word) ? (double) typed.length() / word.length() : 1;
+    }
+
+    private Map<String, Postings> exactMatch(String word) {
+        Postings postings = words.get(word);
+        return postings == null ? Map.of() : Map.of(word, postings);
+    }
+
+    private Map<String, Postings> prefixMatches(String prefix) {
+        Map<String, Postings> matched = new LinkedHashMap<>();
+        for (Map.Entry<String, Postings> entry : words.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || matched.size() == MAX_PREFIX_WORDS) {
+                break;
+            }
+            matched.put(entry.getKey(), entry.getValue());
+        }
+        return matched;
+    }
+
+    private static long postingCount(Map<String, Postings> matched) {
+        return matched.values().stream().mapToLong(postings -> postings.size).sum();
+    }
+
+    private static Map<String, Integer> wordCounts(String notes) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : tokenize(notes)) {
+            counts.merge(word, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    //lower-cased runs of letters and digits
+    static List<String> tokenize(@NotNull final String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            tokens.add(text.substring(start).toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+}
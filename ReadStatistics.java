@@ -0,0 +1,21 @@
+package de.hup.home.assignment;
+
+/**
+ * What one load of a user read, filled in by the {@link SnapshotStore} and the
+ * {@link AssignmentCsvReader} and reported by {@link AssignmentMetrics}.
+ */
+final class ReadStatistics {
+
+    long bytesRead;
+
+    //rows looked at, rows of the user that were valid, rows that were dropped
+    long rowsScanned;
+    long rowsMatched;
+    long invalidRows;
+    long malformedRows;
+
+    long journalEntries;
+
+    //served from the AssignmentStores cache, nothing was read
+    boolean cached;
+}
@@ -0,0 +1,55 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts snapshots between the csv and the binary backend. Ids, lessons, due days, completion and
+ * notes are kept exactly, so converting back and forth gives the same rows. The journal is shared by
+ * both backends and is not touched, convert while the planner is closed.
+ * <pre>
+ * java de.hup.home.assignment.SnapshotConverter export src/de/hup/home/files/assignments.csv
+ * java de.hup.home.assignment.SnapshotConverter import src/de/hup/home/files/assignments.csv
+ * </pre>
+ * {@code export} writes assignments.bin from the csv, {@code import} writes the csv back from it.
+ */
+final class SnapshotConverter {
+
+    private SnapshotConverter() {}
+
+    //replaces every row of the target with the rows of the source
+    static void convert(@NotNull final SnapshotStore from, @NotNull final SnapshotStore to) throws IOException {
+        Map<String, LinkedHashMap<Long, Assignment>> users = new LinkedHashMap<>();
+        from.readAll((username, id, lesson, epochDay, completed, notes) ->
+                users.computeIfAbsent(username, _ -> new LinkedHashMap<>())
+                        .put(id, new Assignment(lesson, EpochDays.toDate(epochDay), completed, notes)));
+        to.prepare(users, false).commit();
+    }
+
+    static void csvToBinary(@NotNull final Path csvPath) throws IOException {
+        convert(new CsvSnapshotStore(csvPath, new AssignmentCsvReader()), new BinarySnapshotStore(BinarySnapshotStore.pathFor(csvPath)));
+    }
+
+    static void binaryToCsv(@NotNull final Path csvPath) throws IOException {
+        convert(new BinarySnapshotStore(BinarySnapshotStore.pathFor(csvPath)), new CsvSnapshotStore(csvPath, new AssignmentCsvReader()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.err.println("Usage: SnapshotConverter export|import <assignments.csv>");
+            System.exit(1);
+            return;
+        }
+        Path csvPath = Path.of(args[1]);
+        if (args[0].equals("export")) {
+            csvToBinary(csvPath);
+        } else {
+            binaryToCsv(csvPath);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The compacted rows of all users below the {@link AssignmentJournal}.
+ * The backend is chosen with the {@code assignments.backend} system property: {@code csv} (default)
+ * keeps the universal csv, {@code binary} uses the fixed-width {@link BinarySnapshotStore}.
+ * The journal is the same for both, so switching only needs the snapshot converted
+ * (see {@link SnapshotConverter}).
+ */
+interface SnapshotStore {
+
+    String BACKEND_PROPERTY = "assignments.backend";
+
+    /**
+     * Opens the configured backend for the csv path. The binary file lives next to the csv and is
+     * imported from it the first time the binary backend is used.
+     */
+    static SnapshotStore open(@NotNull final Path csvPath, @NotNull final AssignmentCsvReader csvReader) throws IOException {
+        String backend = System.getProperty(BACKEND_PROPERTY, "csv");
+        return switch (backend) {
+            case "csv" -> new CsvSnapshotStore(csvPath, csvReader);
+            case "binary" -> {
+                BinarySnapshotStore store = new BinarySnapshotStore(BinarySnapshotStore.pathFor(csvPath));
+                if (!Files.exists(store.path()) && Files.exists(csvPath)) {
+                    SnapshotConverter.convert(new CsvSnapshotStore(csvPath, csvReader), store);
+                }
+                yield store;
+            }
+            default -> throw new IllegalArgumentException("Unknown assignments backend: " + backend);
+        };
+    }
+
+    Path path();
+
+    //rows of one user in snapshot order
+    void readUser(@NotNull String username, @NotNull AssignmentCsvReader.RowConsumer consumer,
+                  @NotNull ReadStatistics statistics) throws IOException;
+
+    //rows of every user, grouped by user
+    void readAll(@NotNull AssignmentCsvReader.UserRowConsumer consumer) throws IOException;
+
+    /**
+     * Feeds the rows of every user that pass the filter into accumulators and merges them. Backends
+     * may split the snapshot and fill one accumulator per part in parallel, the default reads
+     * everything into one.
+     */
+    default <A extends RowAccumulator<A>> A aggregate(@NotNull final Supplier<A> accumulators,
+                                                      @NotNull final RowFilter filter) throws IOException {
+        A accumulator = accumulators.get();
+        readAll(filtered(accumulator, filter));
+        return accumulator;
+    }
+
+    static AssignmentCsvReader.UserRowConsumer filtered(@NotNull final AssignmentCsvReader.UserRowConsumer consumer,
+                                                        @NotNull final RowFilter filter) {
+        return (username, id, lesson, epochDay, completed, notes) -> {
+            if (filter.test(username, id)) {
+                consumer.accept(username, id, lesson, epochDay, completed, notes);
+            }
+        };
+    }
+
+    /**
+     * Writes a new snapshot next to the current one. Users in changedUsers get exactly the given
+     * rows, the rows of all other users are carried over unless keepOtherUsers is false.
+     * Nothing is visible until the returned replacement is committed.
+     */
+    Replacement prepare(@NotNull Map<String, ? extends Map<Long, Assignment>> changedUsers, boolean keepOtherUsers) throws IOException;
+
+    //rows the backend itself could not decode, csv rows are counted by the AssignmentCsvReader
+    long malformedRows();
+
+    /**
+     * Consumes the rows of one part of a snapshot. Merging must not depend on which parts the
+     * accumulators saw, they are merged in no particular grouping.
+     */
+    interface RowAccumulator<A extends RowAccumulator<A>> extends AssignmentCsvReader.UserRowConsumer {
+        //may reuse either accumulator
+        @NotNull A merge(@NotNull A other);
+    }
+
+    interface RowFilter {
+        boolean test(@NotNull String username, long id);
+    }
+
+    /**
+     * A written but not yet visible snapshot.
+     */
+    interface Replacement {
+        void commit() throws IOException;
+    }
+}
@@ -0,0 +1,64 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * One red-black tree per {@link AssignmentSortCriteria}, so every sort order is available at any time
+ * and is maintained in O(log n) per change. Entries carry the data they were sorted by, ties are
+ * broken by id so equal assignments can coexist.
+ */
+final class SortedAssignmentIndex implements AssignmentIndex {
+
+    private record Entry(long id, Assignment data) {}
+
+    private final Map<AssignmentSortCriteria, TreeSet<Entry>> orders = new EnumMap<>(AssignmentSortCriteria.class);
+
+    SortedAssignmentIndex() {
+        for (AssignmentSortCriteria criteria : AssignmentSortCriteria.values()) {
+            if (criteria.comparator() != null) {
+                Comparator<Entry> order = Comparator.comparing(Entry::data, criteria.comparator())
+                        .thenComparingLong(Entry::id);
+                orders.put(criteria, new TreeSet<>(order));
+            }
+        }
+    }
+
+    @Override
+    public void added(final long id, @NotNull final Assignment data) {
+        Entry entry = new Entry(id, data);
+        orders.values().forEach(order -> order.add(entry));
+    }
+
+    @Override
+    public void updated(final long id, @NotNull final Assignment oldData, @NotNull final Assignment newData) {
+        removed(id, oldData);
+        added(id, newData);
+    }
+
+    @Override
+    public void removed(final long id, @NotNull final Assignment data) {
+        Entry entry = new Entry(id, data);
+        orders.values().forEach(order -> order.remove(entry));
+    }
+
+    @Override
+    public void cleared() {
+        orders.values().forEach(TreeSet::clear);
+    }
+
+    /**
+     * Ids in the given order, iterated straight from the tree without sorting.
+     * Not usable for {@link AssignmentSortCriteria#ADDED}.
+     */
+    Iterable<Long> ids(@NotNull final AssignmentSortCriteria criteria, final boolean descending) {
+        TreeSet<Entry> order = orders.get(criteria);
+        if (order == null) {
+            throw new IllegalArgumentException("No index for " + criteria);
+        }
+        NavigableSet<Entry> view = descending ? order.descendingSet() : order;
+        return () -> view.stream().map(Entry::id).iterator();
+    }
+}
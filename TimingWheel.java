@@ -0,0 +1,178 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel over abstract ticks. Each level has 64 slots, a timer sits on the
+ * lowest level whose slot it can be told apart by: level 0 holds the next 64 ticks, level 1 the
+ * next 64 * 64 and so on. When the ticks reach a slot of a higher level, its timers are spread
+ * over the lower levels again. Scheduling and cancelling unlink or link one list node, O(1);
+ * advancing costs one step per tick plus the cascades.
+ * <p>
+ * Not thread-safe, the owner synchronizes.
+ */
+final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 7;
+
+    static final class Timer<T> {
+        private final long deadline;
+        private final T payload;
+        private Timer<T> previous;
+        private Timer<T> next;
+        //-1 once it fired or was cancelled
+        private int level = -1;
+        private int slot;
+
+        private Timer(long deadline, T payload) {
+            this.deadline = deadline;
+            this.payload = payload;
+        }
+
+        long deadline() {
+            return deadline;
+        }
+
+        T payload() {
+            return payload;
+        }
+
+        boolean isScheduled() {
+            return level >= 0;
+        }
+    }
+
+    //per level and slot the first timer of a doubly linked list
+    private final Timer<T>[][] heads = newHeads();
+    private long now;
+    private int size;
+
+    TimingWheel(final long startTick) {
+        this.now = startTick;
+    }
+
+    long now() {
+        return now;
+    }
+
+    int size() {
+        return size;
+    }
+
+    //whether a timer at that tick can be scheduled from the current one
+    boolean covers(final long deadline) {
+        return deadline <= now || level(deadline) < LEVELS;
+    }
+
+    /**
+     * Deadlines that already passed fire on the next tick.
+     */
+    Timer<T> schedule(final long deadline, @NotNull final T payload) {
+        Timer<T> timer = new Timer<>(Math.max(deadline, now + 1), payload);
+        if (level(timer.deadline) >= LEVELS) {
+            throw new IllegalArgumentException("Deadline beyond the wheel: " + deadline);
+        }
+        link(timer);
+        size++;
+        return timer;
+    }
+
+    //false if it already fired or was cancelled
+    boolean cancel(@NotNull final Timer<T> timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves to the tick, the timers due on the way are handed to {@code expired} tick by tick.
+     * {@code expired} must not schedule or cancel on this wheel.
+     */
+    void advance(final long tick, @NotNull final Consumer<T> expired) {
+        while (now < tick) {
+            if (size == 0) {
+                now = tick;
+                return;
+            }
+            now++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((now & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, slot(now, level));
+                }
+            }
+
+            int slot = slot(now, 0);
+            Timer<T> timer = heads[0][slot];
+            heads[0][slot] = null;
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                timer.level = -1;
+                timer.previous = null;
+                timer.next = null;
+                size--;
+                expired.accept(timer.payload);
+                timer = next;
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> timer = heads[level][slot];
+        heads[level][slot] = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            link(timer);
+            timer = next;
+        }
+    }
+
+    //the array only ever holds timers of this wheel
+    @SuppressWarnings("unchecked")
+    private static <T> Timer<T>[][] newHeads() {
+        return (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+    }
+
+    //the highest digit in which the deadline differs from now decides the level
+    private int level(long deadline) {
+        long differing = deadline ^ now;
+        return differing == 0 ? 0 : (63 - Long.numberOfLeadingZeros(differing)) / SLOT_BITS;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+    }
+
+    private void link(Timer<T> timer) {
+        int level = level(timer.deadline);
+        int slot = slot(timer.deadline, level);
+        timer.level = level;
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = heads[level][slot];
+        if (timer.next != null) {
+            timer.next.previous = timer;
+        }
+        heads[level][slot] = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            heads[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.level = -1;
+        timer.previous = null;
+        timer.next = null;
+    }
+}
@@ -0,0 +1,340 @@
+package de.hup.home.assignment;
+
+import de.hup.home.logic.data.Assignment;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * The assignments of one user with their indexes, guarded by a read/write lock of their own so
+ * different users are loaded and changed in parallel. Every manager of the same user shares one
+ * instance (see {@link AssignmentStores}). Changes are handed to the {@link WriteBehindPersister}
+ * while the write lock is held, so the journal sees them in the order they were made.
+ * A detached instance belongs to no user yet and keeps its changes until they are saved for one.
+ * <p>
+ * Every change also publishes a new {@link AssignmentSnapshot}, which other threads read without
+ * taking the lock.
+ */
+final class UserAssignments {
+
+    static final String MEMORY_PROPERTY = "assignments.memory";
+    private static final long ESTIMATED_ROW_BYTES = 400;
+
+    private final String username;
+    private final WriteBehindPersister writeBehind;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //id -> assignment, insertion ordered so the list keeps its file order
+    private final Map<Long, Assignment> assignmentsById;
+    private final Map<Long, Assignment> readOnlyView;
+    //the same map when the columnar layout is used, null otherwise
+    private final ColumnarAssignments columns;
+    private long nextId = 1;
+
+    //counts the changes, the version of the next snapshot
+    private long version;
+    /*
+    Objects layout: the next version is derived from the last one on every change.
+    Columnar layout: null after a change and rebuilt by the next reader, so the rows are not kept as
+    records a second time while nobody asks for snapshots.
+     */
+    private volatile AssignmentSnapshot snapshot = AssignmentSnapshot.EMPTY;
+
+    //characters of all notes, for the cache's size estimate
+    private long notesLength;
+
+    //secondary structures and the reminders, updated on every change; the columns sort themselves
+    private final SortedAssignmentIndex sortedIndex;
+    private final DueDateIndex dueDateIndex = new DueDateIndex();
+    private final NotesIndex notesIndex = new NotesIndex();
+    private final AssignmentAggregates aggregates = new AssignmentAggregates();
+    private final List<AssignmentIndex> indexes;
+
+    //changes of a detached instance
+    private final List<AssignmentJournal.Entry> pendingChanges = new ArrayList<>();
+    //changes for the views
+    private final ChangeBatcher changeBatcher = new ChangeBatcher();
+
+    UserAssignments(@NotNull final String username, @NotNull final WriteBehindPersister writeBehind,
+                    @NotNull final AssignmentReminders reminders) {
+        this(username, writeBehind, reminders, columnar());
+    }
+
+    UserAssignments(final String username, final WriteBehindPersister writeBehind, final AssignmentReminders reminders,
+                    final boolean columnar) {
+        this.username = username;
+        this.writeBehind = writeBehind;
+        List<AssignmentIndex> maintained = new ArrayList<>();
+        if (columnar) {
+            columns = new ColumnarAssignments();
+            assignmentsById = columns;
+            sortedIndex = null;
+        } else {
+            columns = null;
+            assignmentsById = new LinkedHashMap<>();
+            sortedIndex = new SortedAssignmentIndex();
+            maintained.add(sortedIndex);
+        }
+        maintained.add(dueDateIndex);
+        maintained.add(notesIndex);
+        maintained.add(aggregates);
+        //detached instances belong to nobody who could be reminded
+        if (username != null) {
+            maintained.add(reminders.forUser(username));
+        }
+        indexes = List.copyOf(maintained);
+        readOnlyView = Collections.unmodifiableMap(assignmentsById);
+    }
+
+    static UserAssignments detached() {
+        return new UserAssignments(null, null, null, columnar());
+    }
+
+    /*
+    assignments.memory=objects (default) keeps one record per assignment with every sort order
+    maintained, =columnar keeps primitive columns (see ColumnarAssignments) for users with many rows.
+     */
+    private static boolean columnar() {
+        String memory = System.getProperty(MEMORY_PROPERTY, "objects");
+        return switch (memory) {
+            case "objects" -> false;
+            case "columnar" -> true;
+            default -> throw new IllegalArgumentException("Unknown assignments memory layout: " + memory);
+        };
+    }
+
+    //null while detached
+    String username() {
+        return username;
+    }
+
+    OptionalLong add(@NotNull final Assignment data) {
+        lock.writeLock().lock();
+        try {
+            long id = nextId++;
+            assignmentsById.put(id, data);
+            notesLength += data.notes().length();
+            indexes.forEach(index -> index.added(id, data));
+            changed(AssignmentJournal.Entry.add(id, data.toCSVLine()));
+            published(id, data);
+            changeBatcher.added(id);
+            return OptionalLong.of(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean update(final long id, @NotNull final Assignment newData) {
+        lock.writeLock().lock();
+        try {
+            Assignment oldData = assignmentsById.replace(id, newData);
+            if (oldData == null) {
+                return false;
+            }
+            notesLength += newData.notes().length() - oldData.notes().length();
+            indexes.forEach(index -> index.updated(id, oldData, newData));
+            changed(AssignmentJournal.Entry.update(id, newData.toCSVLine()));
+            published(id, newData);
+            changeBatcher.updated(id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean remove(final long id) {
+        lock.writeLock().lock();
+        try {
+            Assignment data = assignmentsById.remove(id);
+            if (data == null) {
+                return false;
+            }
+            notesLength -= data.notes().length();
+            indexes.forEach(index -> index.removed(id, data));
+            changed(AssignmentJournal.Entry.delete(id));
+            version++;
+            snapshot = columns != null ? null : snapshot.without(id, version);
+            changeBatcher.removed(id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Source of freshly loaded rows, called with the write lock held so no change of this user
+     * can slip in between reading the file and replacing the rows.
+     */
+    interface Loader {
+        Map<Long, Assignment> load() throws IOException;
+    }
+
+    //replaces everything with the loaded rows, nothing is journaled
+    void reload(@NotNull final Loader loader) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Map<Long, Assignment> rows = loader.load();
+            assignmentsById.clear();
+            indexes.forEach(AssignmentIndex::cleared);
+            pendingChanges.clear();
+            assignmentsById.putAll(rows);
+            assignmentsById.forEach((id, data) -> indexes.forEach(index -> index.added(id, data)));
+            nextId = assignmentsById.keySet().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+            notesLength = assignmentsById.values().stream().mapToLong(data -> data.notes().length()).sum();
+            version++;
+            snapshot = columns != null ? null : AssignmentSnapshot.of(assignmentsById, version);
+            changeBatcher.reloaded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Optional<Assignment> get(final long id) {
+        return read(() -> Optional.ofNullable(assignmentsById.get(id)));
+    }
+
+    //in id order, not copied
+    List<Assignment> list() {
+        return snapshot().values();
+    }
+
+    /**
+     * The current version. Lock-free unless the columnar layout has to build it after a change.
+     */
+    AssignmentSnapshot snapshot() {
+        AssignmentSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        //readers exclude writers, so the rows cannot change while this one is built
+        return read(() -> {
+            AssignmentSnapshot built = snapshot;
+            if (built == null) {
+                built = AssignmentSnapshot.of(assignmentsById, version);
+                snapshot = built;
+            }
+            return built;
+        });
+    }
+
+    int size() {
+        return read(assignmentsById::size);
+    }
+
+    /*
+    Rough heap size: map entry, record, date and the entries of every sorted order per row,
+    plus two bytes per notes character.
+     */
+    long estimatedBytes() {
+        if (columns != null) {
+            return read(columns::estimatedBytes);
+        }
+        return read(() -> assignmentsById.size() * ESTIMATED_ROW_BYTES + 2 * notesLength);
+    }
+
+    /*
+    The views below are not copied. They may only be iterated by the thread that changes this user,
+    e.g. the EDT of its window; other threads use get, list or snapshot.
+     */
+    Map<Long, Assignment> view() {
+        return readOnlyView;
+    }
+
+    Iterable<Long> ids(@NotNull final AssignmentSortCriteria criteria, final boolean descending) {
+        if (columns != null) {
+            return columns.ids(criteria, descending);
+        }
+        if (criteria == AssignmentSortCriteria.ADDED) {
+            SequencedSet<Long> ids = ((LinkedHashMap<Long, Assignment>) assignmentsById).sequencedKeySet();
+            return Collections.unmodifiableSequencedCollection(descending ? ids.reversed() : ids);
+        }
+        return sortedIndex.ids(criteria, descending);
+    }
+
+    /**
+     * Assignments due from {@code fromDay} to {@code toDay} (epoch days, both inclusive) that pass the
+     * filter, in due order and at most {@code limit}. Only the days in the range are visited.
+     */
+    Map<Long, Assignment> due(final int fromDay, final int toDay, final int limit,
+                              @NotNull final AssignmentFilter filter) {
+        return read(() -> {
+            Map<Long, Assignment> due = new LinkedHashMap<>();
+            if (limit <= 0) {
+                return due;
+            }
+            dueDateIndex.visit(fromDay, toDay, id -> {
+                Assignment data = assignmentsById.get(id);
+                if (filter.test(data)) {
+                    due.put(id, data);
+                }
+                return due.size() < limit;
+            });
+            return due;
+        });
+    }
+
+    //counters kept up to date by every change, see AssignmentAggregates
+    AssignmentSummary summary(final int monday) {
+        return read(() -> aggregates.summary(monday));
+    }
+
+    //ids ranked by how well their notes match the query, see NotesIndex
+    List<Long> searchNotes(@NotNull final String query, final int limit) {
+        return read(() -> notesIndex.search(query, limit));
+    }
+
+    //a copy of the ids in the given order, for threads other than the one changing this user
+    List<Long> copyIds(@NotNull final AssignmentSortCriteria criteria, final boolean descending) {
+        return read(() -> {
+            List<Long> copy = new ArrayList<>(assignmentsById.size());
+            ids(criteria, descending).forEach(copy::add);
+            return copy;
+        });
+    }
+
+    void addChangeListener(@NotNull final AssignmentChangeListener listener) {
+        changeBatcher.addListener(listener);
+    }
+
+    void removeChangeListener(@NotNull final AssignmentChangeListener listener) {
+        changeBatcher.removeListener(listener);
+    }
+
+    //the changes of a detached instance, cleared
+    List<AssignmentJournal.Entry> takePendingChanges() {
+        lock.writeLock().lock();
+        try {
+            List<AssignmentJournal.Entry> changes = List.copyOf(pendingChanges);
+            pendingChanges.clear();
+            return changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void changed(AssignmentJournal.Entry change) {
+        if (writeBehind != null) {
+            writeBehind.markDirty(username, List.of(change));
+        } else {
+            pendingChanges.add(change);
+        }
+    }
+
+    //called with the write lock held
+    private void published(long id, Assignment data) {
+        version++;
+        snapshot = columns != null ? null : snapshot.with(id, data, version);
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
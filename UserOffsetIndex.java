@@ -0,0 +1,296 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Side index for the universal assignments file.
+ * Maps every username to the byte ranges of its rows, so a login only reads its own rows
+ * instead of scanning the whole file. The index remembers length, modification time and a
+ * checksum of the csv's tail and is rebuilt as soon as one of them does not match anymore.
+ */
+final class UserOffsetIndex {
+
+    private static final int MAGIC = 0x41494458; //"AIDX"
+    private static final int VERSION = 1;
+    private static final int TAIL_CHECK_BYTES = 4096;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final Path csvPath;
+    private final Path indexPath;
+
+    //username -> {offset0, length0, offset1, length1, ...}
+    private Map<String, long[]> ranges = Map.of();
+    private CsvStamp stamp;
+
+    UserOffsetIndex(@NotNull final Path csvPath) {
+        this.csvPath = csvPath;
+        this.indexPath = csvPath.resolveSibling(csvPath.getFileName() + ".idx");
+    }
+
+    /**
+     * Reads only the byte ranges of one user and decodes them into one buffer, rows still contain
+     * the username column. Ranges are read with positional channel reads instead of {@code map}:
+     * a mapped region keeps the csv pinned until it is garbage collected, which makes the next
+     * save fail on Windows.
+     */
+    CharBuffer readRows(@NotNull final String username, @NotNull final ReadStatistics statistics) throws IOException {
+        long[] userRanges;
+        //only the lookup is synchronized, users are read in parallel
+        synchronized (this) {
+            if (!Files.exists(csvPath)) {
+                return CharBuffer.allocate(0);
+            }
+            ensureFresh();
+            userRanges = ranges.get(username);
+        }
+        if (userRanges == null) {
+            return CharBuffer.allocate(0);
+        }
+
+        long total = 0;
+        for (int i = 1; i < userRanges.length; i += 2) {
+            total += userRanges[i];
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(total));
+        statistics.bytesRead += total;
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            for (int i = 0; i < userRanges.length; i += 2) {
+                //only the last row of the file can lack its newline, so ranges never run together
+                long position = userRanges[i];
+                buffer.limit(buffer.position() + (int) userRanges[i + 1]);
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    position += read;
+                }
+            }
+        }
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer);
+    }
+
+    /**
+     * Byte ranges of all users in file order, e.g. to copy rows without decoding them.
+     */
+    synchronized List<Range> rangesInFileOrder() throws IOException {
+        if (!Files.exists(csvPath)) {
+            return List.of();
+        }
+        ensureFresh();
+
+        List<Range> all = new ArrayList<>();
+        ranges.forEach((username, userRanges) -> {
+            for (int i = 0; i < userRanges.length; i += 2) {
+                all.add(new Range(username, userRanges[i], userRanges[i + 1]));
+            }
+        });
+        all.sort(Comparator.comparingLong(Range::offset));
+        return all;
+    }
+
+    /**
+     * Replaces the index with rows recorded while the csv was written and persists it.
+     * Must be called right after the csv has been closed.
+     */
+    synchronized void publish(@NotNull final Builder builder) {
+        try {
+            ranges = builder.build();
+            stamp = CsvStamp.of(csvPath);
+            writeIndexFile();
+        } catch (IOException e) {
+            //the index is only a cache, the next load rebuilds it from the csv
+            ranges = Map.of();
+            stamp = null;
+        }
+    }
+
+    private void ensureFresh() throws IOException {
+        CsvStamp current = CsvStamp.of(csvPath);
+        if (current.equals(stamp)) {
+            return;
+        }
+        if (readIndexFile(current)) {
+            return;
+        }
+        ranges = scan();
+        stamp = current;
+        try {
+            writeIndexFile();
+        } catch (IOException _) {
+            //index stays in memory only
+        }
+    }
+
+    //one pass over the csv, records where every row starts and which user it belongs to
+    private Map<String, long[]> scan() throws IOException {
+        Builder builder = new Builder();
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            ByteArrayOutputStream username = new ByteArrayOutputStream();
+            long position = 0;
+            long lineStart = 0;
+            boolean inUsername = true;
+            boolean firstLine = true;
+
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\n') {
+                        String name = username.toString(StandardCharsets.UTF_8);
+                        //skip header
+                        boolean header = firstLine && name.trim().equalsIgnoreCase("username") && !inUsername;
+                        if (!header && !inUsername) {
+                            builder.addRow(name, lineStart, position - lineStart);
+                        }
+                        firstLine = false;
+                        username.reset();
+                        inUsername = true;
+                        lineStart = position;
+                    } else if (inUsername) {
+                        if (b == ',') {
+                            inUsername = false;
+                        } else {
+                            username.write(b);
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+
+            //last row without trailing newline
+            if (!inUsername && position > lineStart) {
+                String name = username.toString(StandardCharsets.UTF_8);
+                if (!(firstLine && name.trim().equalsIgnoreCase("username"))) {
+                    builder.addRow(name, lineStart, position - lineStart);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private boolean readIndexFile(@NotNull final CsvStamp current) {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            CsvStamp stored = new CsvStamp(in.readLong(), in.readLong(), in.readLong());
+            if (!stored.equals(current)) {
+                return false;
+            }
+
+            int users = in.readInt();
+            Map<String, long[]> loaded = new HashMap<>(users * 2);
+            for (int i = 0; i < users; i++) {
+                String username = in.readUTF();
+                long[] userRanges = new long[in.readInt() * 2];
+                for (int r = 0; r < userRanges.length; r++) {
+                    userRanges[r] = in.readLong();
+                }
+                loaded.put(username, userRanges);
+            }
+            ranges = loaded;
+            stamp = stored;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void writeIndexFile() throws IOException {
+        Path temp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp.length());
+            out.writeLong(stamp.lastModified());
+            out.writeLong(stamp.tailCrc());
+            out.writeInt(ranges.size());
+            for (Map.Entry<String, long[]> entry : ranges.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length / 2);
+                for (long value : entry.getValue()) {
+                    out.writeLong(value);
+                }
+            }
+        }
+        try {
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException _) {
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Consecutive rows of one user.
+     */
+    record Range(@NotNull String username, long offset, long length) {}
+
+    /**
+     * Collects row positions, merging rows of the same user that follow each other into one range.
+     */
+    static final class Builder {
+        private final Map<String, List<long[]>> rows = new HashMap<>();
+
+        void addRow(@NotNull final String username, final long offset, final long length) {
+            List<long[]> userRows = rows.computeIfAbsent(username, _ -> new ArrayList<>());
+            if (!userRows.isEmpty()) {
+                long[] last = userRows.getLast();
+                if (last[0] + last[1] == offset) {
+                    last[1] += length;
+                    return;
+                }
+            }
+            userRows.add(new long[]{offset, length});
+        }
+
+        private Map<String, long[]> build() {
+            Map<String, long[]> built = new HashMap<>(rows.size() * 2);
+            rows.forEach((username, userRows) -> {
+                long[] flat = new long[userRows.size() * 2];
+                for (int i = 0; i < userRows.size(); i++) {
+                    flat[i * 2] = userRows.get(i)[0];
+                    flat[i * 2 + 1] = userRows.get(i)[1];
+                }
+                built.put(username, flat);
+            });
+            return built;
+        }
+    }
+
+    /**
+     * What the index knows about the csv it was built from.
+     */
+    private record CsvStamp(long length, long lastModified, long tailCrc) {
+
+        static CsvStamp of(Path csv) throws IOException {
+            long length = Files.size(csv);
+            long lastModified = Files.getLastModifiedTime(csv).toMillis();
+
+            CRC32 crc = new CRC32();
+            try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+                int tail = (int) Math.min(length, TAIL_CHECK_BYTES);
+                ByteBuffer buffer = ByteBuffer.allocate(tail);
+                channel.read(buffer, length - tail);
+                buffer.flip();
+                crc.update(buffer);
+            }
+            return new CsvStamp(length, lastModified, crc.getValue());
+        }
+    }
+}
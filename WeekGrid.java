@@ -0,0 +1,227 @@
+package de.hup.home.plan;
+
+import de.hup.home.plan.enums.Lesson;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.*;
+import java.util.List;
+
+/**
+ * The week plan as one component. Lesson and break slots are painted here instead of being
+ * components of their own, the {@link LessonBlock}s only hold the lesson and open the
+ * {@link LessonEditor}. Slot bounds are computed once per size and kept until the size, the slots or
+ * the weight of a lesson change, a click is mapped to its slot by a binary search over them.
+ */
+class WeekGrid extends JComponent {
+
+    private static final int COLUMN_GAP = 5;
+    private static final int SLOT_INSET = 2;
+    private static final int ARC = 10;
+    private static final Color LESSON_COLOR = new Color(230, 236, 245);
+    private static final Color EMPTY_COLOR = new Color(245, 245, 245);
+    private static final Color BREAK_COLOR = new Color(210, 210, 210);
+    private static final Color BORDER_COLOR = new Color(160, 170, 185);
+
+    //block is null for breaks, lessons take the current weight of their block
+    private record Slot(LessonBlock block, int breakWeight) {
+
+        int weight() {
+            return block == null ? breakWeight : block.getWeight();
+        }
+    }
+
+    private final List<List<Slot>> days = new ArrayList<>();
+    //per day the slot bounds, null while they have to be computed
+    private Rectangle[][] bounds;
+    private int boundsWidth;
+    private int boundsHeight;
+    //weights of the lessons the bounds were computed with
+    private final Map<LessonBlock, Integer> boundsWeights = new HashMap<>();
+    //lessons as they were last painted, to repaint only the slots that changed
+    private final Map<LessonBlock, Lesson> paintedLessons = new HashMap<>();
+
+    WeekGrid() {
+        setOpaque(false);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                Slot slot = slotAt(e.getPoint());
+                if (slot != null && slot.block() != null) {
+                    //no pressed look to show, the block is painted by the grid
+                    slot.block().doClick(0);
+                }
+            }
+        });
+    }
+
+    void addDay() {
+        days.add(new ArrayList<>());
+        slotsChanged();
+    }
+
+    void addLesson(@NotNull final LessonBlock block) {
+        days.getLast().add(new Slot(block, 0));
+        slotsChanged();
+    }
+
+    void addBreak(final int weight) {
+        days.getLast().add(new Slot(null, weight));
+        slotsChanged();
+    }
+
+    //call after lessons were edited, only the slots whose lesson changed are repainted; a changed weight lays out again
+    void lessonsChanged() {
+        if (bounds != null && weightsChanged()) {
+            slotsChanged();
+            return;
+        }
+
+        Rectangle[][] current = currentBounds();
+        for (int day = 0; day < days.size(); day++) {
+            List<Slot> slots = days.get(day);
+            for (int i = 0; i < slots.size(); i++) {
+                LessonBlock block = slots.get(i).block();
+                if (block != null && block.getLesson() != paintedLessons.get(block)) {
+                    repaint(current[day][i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle[][] current = currentBounds();
+        Rectangle clip = g.getClipBounds();
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            FontMetrics metrics = g2.getFontMetrics();
+            for (int day = 0; day < days.size(); day++) {
+                List<Slot> slots = days.get(day);
+                for (int i = 0; i < slots.size(); i++) {
+                    Rectangle slotBounds = current[day][i];
+                    if (clip == null || slotBounds.intersects(clip)) {
+                        paintSlot(g2, metrics, slots.get(i), slotBounds);
+                    }
+                }
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintSlot(Graphics2D g, FontMetrics metrics, Slot slot, Rectangle slotBounds) {
+        int x = slotBounds.x + SLOT_INSET;
+        int y = slotBounds.y + SLOT_INSET;
+        int width = slotBounds.width - 2 * SLOT_INSET;
+        int height = slotBounds.height - 2 * SLOT_INSET;
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (slot.block() == null) {
+            g.setColor(BREAK_COLOR);
+            g.fillRoundRect(x, y, width, height, ARC, ARC);
+            return;
+        }
+
+        Lesson lesson = slot.block().getLesson();
+        paintedLessons.put(slot.block(), lesson);
+        g.setColor(lesson == Lesson.NONE ? EMPTY_COLOR : LESSON_COLOR);
+        g.fillRoundRect(x, y, width, height, ARC, ARC);
+        g.setColor(BORDER_COLOR);
+        g.drawRoundRect(x, y, width - 1, height - 1, ARC, ARC);
+
+        String text = lesson.getDisplayName();
+        g.setColor(getForeground());
+        g.drawString(text, x + (width - metrics.stringWidth(text)) / 2,
+                y + (height - metrics.getHeight()) / 2 + metrics.getAscent());
+    }
+
+    //the slot under the point, null between slots
+    private Slot slotAt(Point point) {
+        Rectangle[][] current = currentBounds();
+        for (int day = 0; day < days.size(); day++) {
+            Rectangle[] column = current[day];
+            if (column.length == 0 || point.x < column[0].x || point.x >= column[0].x + column[0].width) {
+                continue;
+            }
+            int low = 0;
+            int high = column.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                Rectangle slotBounds = column[middle];
+                if (point.y < slotBounds.y) {
+                    high = middle - 1;
+                } else if (point.y >= slotBounds.y + slotBounds.height) {
+                    low = middle + 1;
+                } else {
+                    return days.get(day).get(middle);
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean weightsChanged() {
+        for (List<Slot> slots : days) {
+            for (Slot slot : slots) {
+                if (slot.block() != null && !Objects.equals(boundsWeights.get(slot.block()), slot.weight())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void slotsChanged() {
+        bounds = null;
+        repaint();
+    }
+
+    /*
+    Columns and slots are placed by rounding their cumulative edges, so the rounding never adds up
+    to a gap at the right or bottom.
+     */
+    private Rectangle[][] currentBounds() {
+        int width = getWidth();
+        int height = getHeight();
+        if (bounds != null && width == boundsWidth && height == boundsHeight) {
+            return bounds;
+        }
+
+        Rectangle[][] computed = new Rectangle[days.size()][];
+        boundsWeights.clear();
+        for (int day = 0; day < days.size(); day++) {
+            int left = edge(day, days.size(), width + COLUMN_GAP);
+            int right = edge(day + 1, days.size(), width + COLUMN_GAP) - COLUMN_GAP;
+
+            List<Slot> slots = days.get(day);
+            int totalWeight = slots.stream().mapToInt(Slot::weight).sum();
+            computed[day] = new Rectangle[slots.size()];
+            int weight = 0;
+            for (int i = 0; i < slots.size(); i++) {
+                int top = edge(weight, totalWeight, height);
+                Slot slot = slots.get(i);
+                weight += slot.weight();
+                if (slot.block() != null) {
+                    boundsWeights.put(slot.block(), slot.weight());
+                }
+                computed[day][i] = new Rectangle(left, top, right - left, edge(weight, totalWeight, height) - top);
+            }
+        }
+        bounds = computed;
+        boundsWidth = width;
+        boundsHeight = height;
+        return computed;
+    }
+
+    private static int edge(long part, long total, int length) {
+        return total == 0 ? 0 : (int) Math.round((double) part * length / total);
+    }
+}
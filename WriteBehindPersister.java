@@ -0,0 +1,129 @@
+package de.hup.home.assignment;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Keeps file I/O off the Swing EDT. Changes are queued per user and a burst of mutations is written
+ * as one journal append shortly after the last one ({@code assignments.writeBehind.delayMillis},
+ * default 300ms). A steady stream of changes is still written at least every ten delays.
+ * {@link #flush()} writes immediately and pending changes are flushed on JVM shutdown.
+ */
+final class WriteBehindPersister {
+
+    static final long DEFAULT_DELAY_MILLIS = 300;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final int MAX_DELAYS = 10;
+
+    private final AssignmentPersistence persistence;
+    private final long delayMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "assignment-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //guarded by this
+    private final Map<String, List<AssignmentJournal.Entry>> dirty = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledWrite;
+    //when the oldest unwritten change was queued
+    private long firstDirtyNanos;
+
+    WriteBehindPersister(@NotNull final AssignmentPersistence persistence) {
+        this(persistence, Long.getLong("assignments.writeBehind.delayMillis", DEFAULT_DELAY_MILLIS));
+    }
+
+    WriteBehindPersister(@NotNull final AssignmentPersistence persistence, final long delayMillis) {
+        this.persistence = persistence;
+        this.delayMillis = delayMillis;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "assignment-write-behind-shutdown"));
+    }
+
+    //queues the changes and pushes the write back to one delay from now, up to the maximum after the first change
+    synchronized void markDirty(@NotNull final String username, @NotNull final List<AssignmentJournal.Entry> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (dirty.isEmpty()) {
+            firstDirtyNanos = now;
+        }
+        dirty.computeIfAbsent(username, _ -> new ArrayList<>()).addAll(changes);
+
+        long latest = firstDirtyNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis * MAX_DELAYS) - now;
+        long delay = Math.max(0, Math.min(TimeUnit.MILLISECONDS.toNanos(delayMillis), latest));
+        if (scheduledWrite != null) {
+            //a write that already started takes these changes too, or leaves them to the new one
+            scheduledWrite.cancel(false);
+        }
+        scheduledWrite = executor.schedule(this::writeDirty, delay, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    synchronized boolean isDirty(@NotNull final String username) {
+        return dirty.containsKey(username);
+    }
+
+    /**
+     * Writes everything queued so far. The future completes once the data is in the journal,
+     * or exceptionally if a write failed; failed changes stay queued for the next attempt.
+     * Scheduled writes that fail are counted as {@code save.failures}, the next flush or change
+     * tries them again.
+     */
+    CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(this::writeDirty, executor);
+    }
+
+    void shutdown() {
+        try {
+            flush().get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            //whatever is still queued is lost with the JVM
+            AssignmentMetrics.counter("save.lostOnShutdown").increment();
+        } catch (RejectedExecutionException _) {
+            //already shut down
+        }
+        executor.shutdown();
+    }
+
+    private void writeDirty() {
+        Map<String, List<AssignmentJournal.Entry>> batch;
+        synchronized (this) {
+            batch = new LinkedHashMap<>(dirty);
+            dirty.clear();
+            scheduledWrite = null;
+        }
+
+        Exception failure = null;
+        for (Map.Entry<String, List<AssignmentJournal.Entry>> user : batch.entrySet()) {
+            try {
+                persistence.append(user.getKey(), user.getValue());
+            } catch (IOException | RuntimeException e) {
+                requeue(user.getKey(), user.getValue());
+                AssignmentMetrics.counter("save.failures").increment();
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new CompletionException(failure);
+        }
+    }
+
+    //failed changes go in front of anything queued meanwhile so the order stays intact
+    private synchronized void requeue(String username, List<AssignmentJournal.Entry> changes) {
+        List<AssignmentJournal.Entry> merged = new ArrayList<>(changes);
+        List<AssignmentJournal.Entry> newer = dirty.remove(username);
+        if (newer != null) {
+            merged.addAll(newer);
+        }
+        dirty.put(username, merged);
+    }
+}